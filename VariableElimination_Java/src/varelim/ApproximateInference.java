@@ -0,0 +1,434 @@
+package varelim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate inference by sampling, for networks whose treewidth is too high for
+ * exact elimination. Works directly on the probability tables of the variables.
+ *
+ * Two engines are available:
+ * - likelihood-weighting: forward sampling in topological order with the observed
+ *   variables clamped, every sample weighted by the probability of the observations.
+ *   The confidence interval is a Wilson interval over the effective sample size of
+ *   the weights, so it stays open for values that have not been sampled yet.
+ * - gibbs: one Gibbs chain per thread that resamples every unobserved variable from
+ *   its Markov blanket. The confidence interval uses batch means over all chains,
+ *   with the t quantile for the number of batches.
+ *
+ * Every thread has its own random stream, split from one seeded generator, and adds
+ * its results to the shared totals after every batch. Sampling stops when the
+ * sample budget or the time budget is used up, or when the half-width of every 95%
+ * confidence interval is below the error bound. The error bound is only checked after
+ * MIN_BATCHES batches, since the intervals of the first few batches can be far too narrow.
+ */
+public class ApproximateInference {
+
+	private static final int BATCH = 1000;
+	private static final int BURN_IN = 500;
+	private static final int MIN_BATCHES = 20;
+	private static final double Z = 1.96;
+	private static final double[] T_QUANTILES = {Double.POSITIVE_INFINITY,
+			12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+			2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045};
+
+	private final int threads;
+	private final long maxSamples;
+	private final long maxMillis;
+	private final double maxError;
+	private final long seed;
+
+	// The network, with variables referred to by their position
+	private final List<Variable> variables;
+	private final int[] order;
+	private final int[] cardinalities;
+	private final int[][] parents;
+	private final int[][] strides;
+	private final int[][] children;
+	private final double[][] tables;
+
+	// Shared totals, guarded by this
+	private double[] totals;
+	private double totalWeight;
+	private double totalSquaredWeight;
+	private double[] batchSum;
+	private double[] batchSquaredSum;
+	private long batches;
+	private long samples;
+	private volatile boolean done;
+
+	private double[] halfWidths;
+	private long elapsedMillis;
+
+	/**
+	 * Constructor of the sampler.
+	 * @param network, the network to sample from.
+	 * @param threads, the number of sampling threads.
+	 * @param maxSamples, sample budget over all threads.
+	 * @param maxMillis, time budget in milliseconds.
+	 * @param maxError, stop when every confidence interval is narrower than this on both sides.
+	 * @param seed, seed of the random streams.
+	 */
+	public ApproximateInference(CompiledNetwork network, int threads, long maxSamples, long maxMillis, double maxError, long seed) {
+		this.threads = threads;
+		this.maxSamples = maxSamples;
+		this.maxMillis = maxMillis;
+		this.maxError = maxError;
+		this.seed = seed;
+		this.variables = network.getVariables();
+
+		int n = variables.size();
+		Map<Variable, Integer> index = new HashMap<>();
+		for (int i = 0; i < n; i++) {
+			index.put(variables.get(i), i);
+		}
+		this.cardinalities = new int[n];
+		this.parents = new int[n][];
+		this.strides = new int[n][];
+		this.tables = new double[n][];
+		List<List<Integer>> childLists = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			childLists.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < n; i++) {
+			Variable variable = variables.get(i);
+			cardinalities[i] = variable.getNumberOfValues();
+			tables[i] = variable.getTable();
+			parents[i] = new int[variable.getNrOfParents()];
+			strides[i] = new int[variable.getNrOfParents()];
+			for (int j = 0; j < parents[i].length; j++) {
+				Variable parent = variable.getParents().get(j);
+				parents[i][j] = index.get(parent);
+				strides[i][j] = variable.getStride(parent);
+				childLists.get(parents[i][j]).add(i);
+			}
+		}
+		this.children = new int[n][];
+		for (int i = 0; i < n; i++) {
+			children[i] = new int[childLists.get(i).size()];
+			for (int j = 0; j < children[i].length; j++) {
+				children[i][j] = childLists.get(i).get(j);
+			}
+		}
+
+		// Topological order, parents before children
+		this.order = new int[n];
+		int[] missing = new int[n];
+		Deque<Integer> ready = new ArrayDeque<>();
+		for (int i = 0; i < n; i++) {
+			missing[i] = parents[i].length;
+			if (missing[i] == 0) {
+				ready.add(i);
+			}
+		}
+		int position = 0;
+		while (!ready.isEmpty()) {
+			int i = ready.poll();
+			order[position++] = i;
+			for (int child : children[i]) {
+				if (--missing[child] == 0) {
+					ready.add(child);
+				}
+			}
+		}
+		if (position != n) {
+			throw new IllegalArgumentException("The network contains a cycle");
+		}
+	}
+
+	/**
+	 * Check if an engine name is handled by this class.
+	 * @param engine, name of the engine.
+	 */
+	public static boolean supports(String engine) {
+		return engine.equals("likelihood-weighting") || engine.equals("gibbs");
+	}
+
+	/**
+	 * Runs a query from the user interface on all cores and prints the estimate.
+	 */
+	public static void approximateInference(UserInterface ui, CompiledNetwork network, String engine) {
+		ApproximateInference sampler = new ApproximateInference(network, Runtime.getRuntime().availableProcessors(),
+				10000000, 10000, 0.001, System.nanoTime());
+		Variable query = ui.getQueriedVariable();
+		Factor estimate = sampler.query(query, ui.getObservedVariables(), engine);
+
+		System.out.println("Estimated probability distribution for " + query.getName() + " (" + engine + "):");
+		int i = 0;
+		for (Map.Entry<Condition, Double> entry : estimate.getValues().entrySet()) {
+			System.out.printf("%s => %.5f +/- %.5f%n", entry.getKey(), entry.getValue(), sampler.getHalfWidths()[i++]);
+		}
+		System.out.println("Samples: " + sampler.getSamples() + " in " + sampler.getElapsedMillis() + " ms");
+	}
+
+	/**
+	 * Estimates the posterior distribution of a variable given the observations.
+	 * @param query, the queried variable.
+	 * @param observed, the observed variables.
+	 * @param engine, likelihood-weighting or gibbs.
+	 * @return the estimate as a normalized factor over the queried variable.
+	 */
+	public Factor query(Variable query, List<ObsVar> observed, final String engine) {
+		if (!supports(engine)) {
+			throw new IllegalArgumentException("Unknown engine " + engine);
+		}
+		final int q = variables.indexOf(query);
+		final int[] evidence = new int[variables.size()];
+		for (int i = 0; i < evidence.length; i++) {
+			evidence[i] = -1;
+		}
+		for (ObsVar obsVar : observed) {
+			evidence[variables.indexOf(obsVar.getVar())] = obsVar.getValueIndex();
+		}
+
+		totals = new double[cardinalities[q]];
+		batchSum = new double[cardinalities[q]];
+		batchSquaredSum = new double[cardinalities[q]];
+		halfWidths = new double[cardinalities[q]];
+		totalWeight = 0;
+		totalSquaredWeight = 0;
+		batches = 0;
+		samples = 0;
+		done = false;
+
+		final long start = System.nanoTime();
+		final long deadline = start + maxMillis * 1000000L;
+		SplittableRandom root = new SplittableRandom(seed);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			final SplittableRandom random = root.split();
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (engine.equals("gibbs")) {
+						gibbs(q, evidence, random, deadline);
+					} else {
+						likelihoodWeighting(q, evidence, random, deadline);
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			done = true;
+			Thread.currentThread().interrupt();
+		}
+		elapsedMillis = (System.nanoTime() - start) / 1000000L;
+
+		List<Variable> scope = new ArrayList<>();
+		scope.add(query);
+		Factor estimate = new Factor(scope);
+		double sum = 0;
+		for (double total : totals) {
+			sum += total;
+		}
+		for (int v = 0; v < totals.length; v++) {
+			estimate.getTable()[v] = sum > 0 ? totals[v] / sum : 0;
+		}
+		return estimate;
+	}
+
+	/**
+	 * Half-widths of the 95% confidence intervals of the last estimate.
+	 */
+	public double[] getHalfWidths() {
+		return halfWidths;
+	}
+
+	public long getSamples() {
+		return samples;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	private void likelihoodWeighting(int q, int[] evidence, SplittableRandom random, long deadline) {
+		int[] state = new int[variables.size()];
+		double[] counts = new double[cardinalities[q]];
+		while (!done) {
+			double weightSum = 0;
+			double squaredWeightSum = 0;
+			for (int s = 0; s < BATCH; s++) {
+				double weight = 1.0;
+				for (int i : order) {
+					int offset = row(i, state);
+					if (evidence[i] >= 0) {
+						state[i] = evidence[i];
+						weight *= tables[i][offset + evidence[i]];
+					} else {
+						state[i] = sample(tables[i], offset, cardinalities[i], random);
+					}
+				}
+				counts[state[q]] += weight;
+				weightSum += weight;
+				squaredWeightSum += weight * weight;
+			}
+			mergeWeighted(counts, weightSum, squaredWeightSum, deadline);
+			for (int v = 0; v < counts.length; v++) {
+				counts[v] = 0;
+			}
+		}
+	}
+
+	private void gibbs(int q, int[] evidence, SplittableRandom random, long deadline) {
+		int[] state = new int[variables.size()];
+		for (int i : order) {
+			state[i] = evidence[i] >= 0 ? evidence[i] : sample(tables[i], row(i, state), cardinalities[i], random);
+		}
+		double[] distribution = new double[maxCardinality()];
+		double[] counts = new double[cardinalities[q]];
+		for (int sweep = 0; sweep < BURN_IN; sweep++) {
+			sweep(state, evidence, distribution, random);
+		}
+		while (!done) {
+			for (int s = 0; s < BATCH; s++) {
+				sweep(state, evidence, distribution, random);
+				counts[state[q]]++;
+			}
+			mergeBatch(counts, deadline);
+			for (int v = 0; v < counts.length; v++) {
+				counts[v] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Resamples every unobserved variable once from its Markov blanket.
+	 */
+	private void sweep(int[] state, int[] evidence, double[] distribution, SplittableRandom random) {
+		for (int i : order) {
+			if (evidence[i] >= 0) {
+				continue;
+			}
+			int offset = row(i, state);
+			for (int x = 0; x < cardinalities[i]; x++) {
+				double p = tables[i][offset + x];
+				state[i] = x;
+				for (int child : children[i]) {
+					p *= tables[child][row(child, state) + state[child]];
+				}
+				distribution[x] = p;
+			}
+			state[i] = sample(distribution, 0, cardinalities[i], random);
+		}
+	}
+
+	/**
+	 * Position of the row of a variable given the values of its parents in the state.
+	 */
+	private int row(int i, int[] state) {
+		int offset = 0;
+		int[] ps = parents[i];
+		int[] ss = strides[i];
+		for (int j = 0; j < ps.length; j++) {
+			offset += ss[j] * state[ps[j]];
+		}
+		return offset;
+	}
+
+	private static int sample(double[] distribution, int offset, int count, SplittableRandom random) {
+		double total = 0;
+		for (int x = 0; x < count; x++) {
+			total += distribution[offset + x];
+		}
+		double u = random.nextDouble() * total;
+		for (int x = 0; x < count - 1; x++) {
+			u -= distribution[offset + x];
+			if (u < 0) {
+				return x;
+			}
+		}
+		return count - 1;
+	}
+
+	private int maxCardinality() {
+		int max = 0;
+		for (int cardinality : cardinalities) {
+			max = Math.max(max, cardinality);
+		}
+		return max;
+	}
+
+	private synchronized void mergeWeighted(double[] counts, double weightSum, double squaredWeightSum, long deadline) {
+		for (int v = 0; v < counts.length; v++) {
+			totals[v] += counts[v];
+		}
+		totalWeight += weightSum;
+		totalSquaredWeight += squaredWeightSum;
+		batches++;
+		samples += BATCH;
+
+		// Wilson interval, which unlike the normal one is not empty for an estimate of 0 or 1
+		double effective = totalSquaredWeight > 0 ? totalWeight * totalWeight / totalSquaredWeight : 0;
+		for (int v = 0; v < totals.length; v++) {
+			if (effective > 0) {
+				double p = totals[v] / totalWeight;
+				halfWidths[v] = Z / (1 + Z * Z / effective)
+						* Math.sqrt(p * (1 - p) / effective + Z * Z / (4 * effective * effective));
+			} else {
+				halfWidths[v] = Double.POSITIVE_INFINITY;
+			}
+		}
+		checkDone(deadline);
+	}
+
+	private synchronized void mergeBatch(double[] counts, long deadline) {
+		for (int v = 0; v < counts.length; v++) {
+			totals[v] += counts[v];
+			double p = counts[v] / BATCH;
+			batchSum[v] += p;
+			batchSquaredSum[v] += p * p;
+		}
+		batches++;
+		samples += BATCH;
+
+		for (int v = 0; v < totals.length; v++) {
+			if (batches < 2) {
+				halfWidths[v] = Double.POSITIVE_INFINITY;
+			} else {
+				double mean = batchSum[v] / batches;
+				double variance = Math.max(0, (batchSquaredSum[v] - batches * mean * mean) / (batches - 1));
+				halfWidths[v] = tQuantile(batches - 1) * Math.sqrt(variance / batches);
+			}
+		}
+		checkDone(deadline);
+	}
+
+	private void checkDone(long deadline) {
+		double widest = 0;
+		for (double halfWidth : halfWidths) {
+			widest = Math.max(widest, halfWidth);
+		}
+		if (samples >= maxSamples || System.nanoTime() >= deadline || (batches >= MIN_BATCHES && widest <= maxError)) {
+			done = true;
+		}
+	}
+
+	/**
+	 * The 97.5% quantile of the t distribution: from a table up to 29 degrees of freedom,
+	 * and by the Cornish-Fisher expansion around Z above that.
+	 * @param degrees, the degrees of freedom, at least 1.
+	 */
+	private static double tQuantile(long degrees) {
+		if (degrees < T_QUANTILES.length) {
+			return T_QUANTILES[(int) degrees];
+		}
+		double z2 = Z * Z;
+		double n = degrees;
+		return Z + Z * (z2 + 1) / (4 * n)
+				+ Z * ((5 * z2 + 16) * z2 + 3) / (96 * n * n)
+				+ Z * (((3 * z2 + 19) * z2 + 17) * z2 - 15) / (384 * n * n * n);
+	}
+}
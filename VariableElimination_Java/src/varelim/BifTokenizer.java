@@ -0,0 +1,247 @@
+package varelim;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer for the .bif format that reads straight from a (memory-mapped) buffer.
+ *
+ * A token is either one of the punctuation characters { } ( ) [ ] ; , | or a word: a
+ * run of any other characters up to whitespace or punctuation. Words are decoded as UTF-8,
+ * whose multi-byte characters never contain the bytes of whitespace or punctuation. Whitespace and
+ * comments in // and C-style form are skipped. Numbers are parsed from the buffer
+ * without creating a String.
+ *
+ * Errors are reported with an IllegalArgumentException that mentions the line.
+ */
+public class BifTokenizer {
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final ByteBuffer buffer;
+	private final int limit;
+	private int position;
+	private int line = 1;
+
+	/**
+	 * Constructor of the tokenizer.
+	 * @param buffer, the contents of a .bif file, read from its position to its limit.
+	 */
+	public BifTokenizer(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * @return true if there are tokens left.
+	 */
+	public boolean hasNext() {
+		skipWhitespace();
+		return position < limit;
+	}
+
+	/**
+	 * Looks at the next character without consuming it.
+	 * @return the first character of the next token, or -1 at the end.
+	 */
+	public int peek() {
+		skipWhitespace();
+		return position < limit ? buffer.get(position) : -1;
+	}
+
+	/**
+	 * Consumes the given punctuation if it is the next token.
+	 * @return true if it was consumed.
+	 */
+	public boolean accept(char punctuation) {
+		if (peek() == punctuation) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Consumes the given punctuation, which has to be the next token.
+	 */
+	public void expect(char punctuation) {
+		if (!accept(punctuation)) {
+			throw error("Expected '" + punctuation + "'");
+		}
+	}
+
+	/**
+	 * Reads the next token, which has to be a word.
+	 * @return the word.
+	 */
+	public String word() {
+		skipWhitespace();
+		int start = position;
+		while (position < limit && !isDelimiter(buffer.get(position))) {
+			position++;
+		}
+		if (start == position) {
+			throw error("Expected a name");
+		}
+		byte[] bytes = new byte[position - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the next token, which has to be a decimal number.
+	 * @return the value of the number.
+	 */
+	public double number() {
+		skipWhitespace();
+		int start = position;
+		boolean negative = false;
+		if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+			negative = buffer.get(position++) == '-';
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean fraction = false;
+		while (position < limit) {
+			byte b = buffer.get(position);
+			if (b >= '0' && b <= '9') {
+				if (mantissa != 0 || b != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if (fraction) {
+					exponent--;
+				}
+			} else if (b == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+			position++;
+		}
+		if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+			position++;
+			boolean negativeExponent = false;
+			if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+				negativeExponent = buffer.get(position++) == '-';
+			}
+			int value = 0;
+			while (position < limit && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+				value = value * 10 + (buffer.get(position++) - '0');
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		if (position < limit && !isDelimiter(buffer.get(position))) {
+			throw error("Expected a number");
+		}
+		if (position == start) {
+			throw error("Expected a number");
+		}
+
+		// Exact integers up to 2^53 and powers of ten up to 10^22 give a correctly
+		// rounded result, everything else goes through the JDK parser.
+		double value;
+		if (digits <= 15 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+			value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+		char[] chars = new char[position - start];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) buffer.get(start + i);
+		}
+		return Double.parseDouble(new String(chars));
+	}
+
+	/**
+	 * Skips everything up to and including the next ';', quoted strings included.
+	 */
+	public void skipStatement() {
+		boolean quoted = false;
+		while (position < limit) {
+			byte b = buffer.get(position++);
+			if (b == '\n') {
+				line++;
+			} else if (b == '"') {
+				quoted = !quoted;
+			} else if (b == ';' && !quoted) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Skips a block starting at the next '{' up to its matching '}'.
+	 */
+	public void skipBlock() {
+		expect('{');
+		int depth = 1;
+		boolean quoted = false;
+		while (position < limit && depth > 0) {
+			byte b = buffer.get(position++);
+			if (b == '\n') {
+				line++;
+			} else if (b == '"') {
+				quoted = !quoted;
+			} else if (!quoted && b == '{') {
+				depth++;
+			} else if (!quoted && b == '}') {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Creates an exception for malformed input at the current line.
+	 */
+	public IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("This network is malformed: " + message + " on line " + line);
+	}
+
+	private void skipWhitespace() {
+		while (position < limit) {
+			byte b = buffer.get(position);
+			if (b == '\n') {
+				line++;
+				position++;
+			} else if (b == ' ' || b == '\t' || b == '\r') {
+				position++;
+			} else if (b == '/' && position + 1 < limit && buffer.get(position + 1) == '/') {
+				while (position < limit && buffer.get(position) != '\n') {
+					position++;
+				}
+			} else if (b == '/' && position + 1 < limit && buffer.get(position + 1) == '*') {
+				position += 2;
+				while (position < limit && !(buffer.get(position) == '*' && position + 1 < limit && buffer.get(position + 1) == '/')) {
+					if (buffer.get(position) == '\n') {
+						line++;
+					}
+					position++;
+				}
+				position += 2;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static boolean isDelimiter(byte b) {
+		switch (b) {
+			case ' ': case '\t': case '\r': case '\n':
+			case '{': case '}': case '(': case ')': case '[': case ']':
+			case ';': case ',': case '|':
+				return true;
+			default:
+				return false;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package varelim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format for a network, so a process can map a precompiled network
+ * instead of parsing the .bif text.
+ *
+ * Layout, all numbers big-endian:
+ * - the magic number "BNET" and the format version,
+ * - the number of variables,
+ * - per variable: its name and the number of values followed by the values,
+ * - per variable: the number of parents followed by their indices in the file,
+ * - padding up to a multiple of 8 bytes,
+ * - the probability tables of all variables as one block of doubles, in the order
+ *   of the variables and with the layout of Variable.getTable().
+ * Strings are stored as a short length followed by the UTF-8 bytes, so names and values
+ * can be at most 65535 bytes long.
+ *
+ * Usage as converter: BinaryNetwork input.bif output.bnet
+ */
+public class BinaryNetwork {
+
+	private static final int MAGIC = 0x424E4554;
+	private static final int VERSION = 1;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: BinaryNetwork input.bif output.bnet");
+			return;
+		}
+		ArrayList<Variable> variables = new Networkreader(args[0]).getVariables();
+		write(variables, args[1]);
+		System.out.println("Wrote " + variables.size() + " variables to " + args[1]);
+	}
+
+	/**
+	 * Writes a network to a file in the binary format.
+	 * @param variables, the variables of the network.
+	 * @param file, name of the file to write.
+	 */
+	public static void write(List<Variable> variables, String file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(variables.size());
+			Map<Variable, Integer> indices = new HashMap<>();
+			for (Variable variable : variables) {
+				indices.put(variable, indices.size());
+				writeString(out, variable.getName());
+				out.writeInt(variable.getNumberOfValues());
+				for (String value : variable.getValues()) {
+					writeString(out, value);
+				}
+			}
+			for (Variable variable : variables) {
+				out.writeInt(variable.getNrOfParents());
+				for (Variable parent : variable.getParents()) {
+					out.writeInt(indices.get(parent));
+				}
+			}
+			while (out.size() % 8 != 0) {
+				out.writeByte(0);
+			}
+			for (Variable variable : variables) {
+				for (double probability : variable.getTable()) {
+					out.writeDouble(probability);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a network from a file in the binary format. The file is memory-mapped and
+	 * the probability tables are copied in bulk.
+	 * @param file, name of the file to read.
+	 * @return the network as list of variables.
+	 */
+	public static ArrayList<Variable> read(String file) throws IOException {
+		try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException(file + " is not a binary network of version " + VERSION);
+			}
+			int count = buffer.getInt();
+			ArrayList<Variable> variables = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				String name = readString(buffer);
+				int valueCount = buffer.getInt();
+				ArrayList<String> values = new ArrayList<>(valueCount);
+				for (int j = 0; j < valueCount; j++) {
+					values.add(readString(buffer));
+				}
+				variables.add(new Variable(name, values));
+			}
+			for (Variable variable : variables) {
+				int parentCount = buffer.getInt();
+				ArrayList<Variable> parents = new ArrayList<>(parentCount);
+				for (int j = 0; j < parentCount; j++) {
+					parents.add(variables.get(buffer.getInt()));
+				}
+				variable.setParents(parents);
+			}
+			buffer.position((buffer.position() + 7) & ~7);
+			DoubleBuffer tables = buffer.asDoubleBuffer();
+			for (Variable variable : variables) {
+				tables.get(variable.getTable());
+			}
+			return variables;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		if (bytes.length > 0xffff) {
+			// writeShort keeps only the lowest 16 bits, so a longer string would be cut off without notice
+			throw new IOException("The string \"" + s.substring(0, 20) + "...\" is " + bytes.length
+					+ " bytes long, only 65535 bytes fit in the binary format");
+		}
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getShort() & 0xffff];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+}
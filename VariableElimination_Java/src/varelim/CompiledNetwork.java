@@ -0,0 +1,51 @@
+package varelim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable form of a network that can be shared by queries running at the same
+ * time. The factor of every conditional probability table is built once; queries
+ * get their own copy, so nothing they do is seen by other queries.
+ *
+ * The variables are not copied and should not be changed after the network is
+ * compiled.
+ */
+public final class CompiledNetwork {
+
+	private final List<Variable> variables;
+	private final Map<Variable, Factor> cpts;
+
+	/**
+	 * Constructor of the network.
+	 * @param variables, the variables as read by the Networkreader.
+	 */
+	public CompiledNetwork(List<Variable> variables) {
+		this.variables = Collections.unmodifiableList(new ArrayList<>(variables));
+		Map<Variable, Factor> cpts = new HashMap<>();
+		for (Variable variable : variables) {
+			cpts.put(variable, Factor.fromVariable(variable));
+		}
+		this.cpts = cpts;
+	}
+
+	/**
+	 * Getter of the variables.
+	 * @return the variables of the network, in the order they were read.
+	 */
+	public List<Variable> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Creates a new factor holding the probabilities of a variable given its parents.
+	 * @param variable, a variable of the network.
+	 * @return a copy owned by the caller.
+	 */
+	public Factor newFactor(Variable variable) {
+		return new Factor(cpts.get(variable));
+	}
+}
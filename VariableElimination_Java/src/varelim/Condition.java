@@ -1,18 +1,41 @@
 package varelim;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Represents a condition or current situation, a collection of variables with set-values.
  * 
+ * Besides the list of observed variables a condition keeps an integer key: the ids of
+ * the variables and the indices of their values, sorted on the id. Equality and the hash,
+ * which is computed once, use this key, so conditions work as keys in a HashMap and the
+ * order of the observed variables does not matter. The list should not be changed after
+ * construction.
+ * 
  * @author Pepe Tiebosch
  */
 public class Condition {
 	private ArrayList<ObsVar> observed;
+	private int[] ids;
+	private int[] values;
+	private int hash;
 	
 	public Condition(List<ObsVar> observed) {
 		this.observed = new ArrayList<>(observed);
+		long[] packed = new long[observed.size()];
+		for(int i = 0; i < packed.length; i++) {
+			ObsVar obsVar = observed.get(i);
+			packed[i] = ((long) obsVar.getVar().getId() << 32) | (obsVar.getValueIndex() & 0xffffffffL);
+		}
+		Arrays.sort(packed);
+		this.ids = new int[packed.length];
+		this.values = new int[packed.length];
+		for(int i = 0; i < packed.length; i++) {
+			ids[i] = (int) (packed[i] >>> 32);
+			values[i] = (int) packed[i];
+		}
+		this.hash = Arrays.hashCode(ids) * 31 + Arrays.hashCode(values);
 	}
 	
 
@@ -22,12 +45,7 @@ public class Condition {
 	 * @param v
 	 */
 	public boolean mention(Variable v) {
-		for(ObsVar obs : observed) {
-			if(obs.getVar().getName().equals(v.getName())) {
-				return true;
-			}
-		}
-		return false;
+		return Arrays.binarySearch(ids, v.getId()) >= 0;
 	}
 	
 	/**
@@ -35,12 +53,8 @@ public class Condition {
 	 * @param other
 	 */
 	public boolean contains(ObsVar other) {
-		for (ObsVar obsVar : observed) {
-			if(other.equals(obsVar)) {
-				return true;
-			}
-		}
-		return false;
+		int i = Arrays.binarySearch(ids, other.getVar().getId());
+		return i >= 0 && values[i] == other.getValueIndex();
 	}
 	
 	/**
@@ -65,6 +79,20 @@ public class Condition {
 		return observed;
 	}
 	
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof Condition)) {
+			return false;
+		}
+		Condition condition = (Condition) other;
+		return hash == condition.hash && Arrays.equals(ids, condition.ids) && Arrays.equals(values, condition.values);
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
 	
 	public String toString() {
 		if(observed.isEmpty()) {
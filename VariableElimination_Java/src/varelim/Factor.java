@@ -1,43 +1,92 @@
 package varelim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Class to represent a factor in Bayesian networks.
- * 
+ *
+ * The table is stored densely as a flat array of doubles. An assignment to the
+ * variables of the factor is mapped to a position in the table with mixed-radix
+ * strides over the number of values of each variable: the first variable varies
+ * fastest, so its stride is 1, the stride of the second variable is the number of
+ * values of the first one, and so on.
+ *
  * @author Pepe Tiebosch
  */
 public class Factor {
 
     private List<Variable> variables;
-    private Map<Condition, Double> values;
+    private int[] cardinalities;
+    private int[] strides;
+    private double[] table;
     private int counter = 0;
 
     /**
      * Constructor for the factor class.
-     * 
+     *
      * @param variables List of variables in the factor.
      */
     public Factor(List<Variable> variables) {
-        this.variables = new ArrayList<>(variables);
-        this.values = new HashMap<>();
+        setScope(new ArrayList<>(variables));
+        this.table = new double[size(cardinalities)];
     }
 
     /**
-     * Getter for the values of the factor.
-     * 
+     * Copy constructor, the table of the other factor is cloned.
+     *
+     * @param other Factor to copy.
+     */
+    public Factor(Factor other) {
+        this.variables = new ArrayList<>(other.variables);
+        this.cardinalities = other.cardinalities.clone();
+        this.strides = other.strides.clone();
+        this.table = other.table.clone();
+    }
+
+    /**
+     * Creates the factor of the conditional probability table of a variable. The
+     * scope of the factor is the variable itself followed by its parents.
+     *
+     * @param variable Variable whose probabilities are used.
+     * @return Factor holding P(variable | parents).
+     */
+    public static Factor fromVariable(Variable variable) {
+        List<Variable> scope = new ArrayList<>();
+        scope.add(variable);
+        scope.addAll(variable.getParents());
+        Factor factor = new Factor(scope);
+        System.arraycopy(variable.getTable(), 0, factor.table, 0, factor.table.length);
+        return factor;
+    }
+
+    /**
+     * View of the values of the factor. The map is built from the table on every
+     * call, changes to it are not written back to the factor.
+     *
      * @return Map of conditions and corresponding probabilities.
      */
     public Map<Condition, Double> getValues() {
+        Map<Condition, Double> values = new LinkedHashMap<>();
+        int[] assignment = new int[variables.size()];
+        for (int i = 0; i < table.length; i++) {
+            List<ObsVar> observed = new ArrayList<>();
+            for (int l = 0; l < assignment.length; l++) {
+                Variable variable = variables.get(l);
+                observed.add(new ObsVar(variable, assignment[l]));
+            }
+            values.put(new Condition(observed), table[i]);
+            next(assignment, cardinalities);
+        }
         return values;
     }
 
     /**
      * Getter for the variables in the factor.
-     * 
+     *
      * @return List of variables in the factor.
      */
     public List<Variable> getVariables() {
@@ -45,90 +94,210 @@ public class Factor {
     }
 
     /**
-     * Set values for the factor.
-     * 
+     * Getter for the dense table of the factor.
+     *
+     * @return Array of probabilities, indexed with the strides of the factor.
+     */
+    public double[] getTable() {
+        return table;
+    }
+
+    /**
+     * Getter for the stride of a variable in the table.
+     *
+     * @param variable Variable in the factor.
+     * @return The stride of the variable, or 0 if it is not in the factor.
+     */
+    public int getStride(Variable variable) {
+        int position = variables.indexOf(variable);
+        return position < 0 ? 0 : strides[position];
+    }
+
+    /**
+     * Looks up the value of an assignment to the variables of the factor. Variables in the
+     * condition that are not in the factor are ignored.
+     *
+     * @param condition Assignment to the variables of the factor.
+     * @return The value in the table.
+     */
+    public double getValue(Condition condition) {
+        int index = 0;
+        for (ObsVar obsVar : condition.getObserved()) {
+            index += getStride(obsVar.getVar()) * obsVar.getValueIndex();
+        }
+        return table[index];
+    }
+
+    /**
+     * Set values for the factor. Every condition should mention all variables of the
+     * factor, variables mentioned that are not in the factor are ignored.
+     *
      * @param values Map of conditions and corresponding probabilities.
      */
     public void setValues(Map<Condition, Double> values) {
-        this.values = values;
-    }
-
-    public void product(Map<Condition, Double> otherValues) {
-         increaseCounter();
-        if(values.isEmpty()) {
-            values.putAll(otherValues);
-        } else {
-            for (Map.Entry<Condition, Double> entry : values.entrySet()) {
-                Condition condition = entry.getKey();
-                double value = entry.getValue();
-                Double otherValue = otherValues.get(condition);
-                if (otherValue != null) {
-                    values.put(condition, value * otherValue);
+        for (Map.Entry<Condition, Double> entry : values.entrySet()) {
+            int index = 0;
+            for (ObsVar obsVar : entry.getKey().getObserved()) {
+                int position = variables.indexOf(obsVar.getVar());
+                if (position >= 0) {
+                    index += strides[position] * obsVar.getValueIndex();
                 }
             }
+            table[index] = entry.getValue();
         }
     }
 
     /**
-     * Perform reduction on the factor by fixing a variable to a specific value.
-     * 
-     * @param variable Variable to be fixed.
-     * @param value    Value to which the variable is fixed.
+     * Multiply this factor with another factor. The scope of this factor becomes the
+     * union of both scopes.
+     *
+     * @param other Factor to multiply with.
      */
-    public void reduce(Variable variable, String value) {
-         increaseCounter();
-        List<Variable> updatedVariables = new ArrayList<>(variables);
-        updatedVariables.remove(variable);
-        List<Condition> conditionsToRemove = new ArrayList<>();
+    public void product(Factor other) {
+        increaseCounter();
+        Factor joined = product(Arrays.asList(this, other));
+        setScope(joined.variables);
+        this.table = joined.table;
+    }
+
+    /**
+     * Multiply a list of factors into a new factor over the union of their scopes.
+     *
+     * All factors are joined in a single pass over the result table: an odometer
+     * steps through the assignments of the union scope and moves the position in
+     * every input table along with it, so no intermediate pairwise products are
+     * built and nothing is allocated per entry. An empty list gives the unit factor.
+     *
+     * @param factors Factors to multiply.
+     * @return The product of the factors.
+     */
+    public static Factor product(List<Factor> factors) {
+        List<Variable> union = new ArrayList<>();
+        for (Factor factor : factors) {
+            for (Variable variable : factor.variables) {
+                if (!union.contains(variable)) {
+                    union.add(variable);
+                }
+            }
+        }
+        Factor result = new Factor(union);
+        result.increaseCounter();
 
-        for (Condition condition : values.keySet()) {
-            for (ObsVar observedVar : condition.getObserved()) {
-                if (observedVar.getVar().equals(variable) && !observedVar.getValue().equals(value)) {
-                    conditionsToRemove.add(condition);
+        int n = factors.size();
+        double[][] tables = new double[n][];
+        int[][] steps = new int[union.size()][n];
+        int[][] resets = new int[union.size()][n];
+        for (int f = 0; f < n; f++) {
+            Factor factor = factors.get(f);
+            tables[f] = factor.table;
+            for (int l = 0; l < union.size(); l++) {
+                steps[l][f] = factor.getStride(union.get(l));
+                resets[l][f] = (result.cardinalities[l] - 1) * steps[l][f];
+            }
+        }
+
+        double[] output = result.table;
+        int[] cardinalities = result.cardinalities;
+        int[] assignment = new int[union.size()];
+        int[] index = new int[n];
+        for (int i = 0; i < output.length; i++) {
+            double value = 1.0;
+            for (int f = 0; f < n; f++) {
+                value *= tables[f][index[f]];
+            }
+            output[i] = value;
+            for (int l = 0; l < assignment.length; l++) {
+                if (++assignment[l] < cardinalities[l]) {
+                    int[] step = steps[l];
+                    for (int f = 0; f < n; f++) {
+                        index[f] += step[f];
+                    }
                     break;
                 }
+                assignment[l] = 0;
+                int[] reset = resets[l];
+                for (int f = 0; f < n; f++) {
+                    index[f] -= reset[f];
+                }
             }
         }
+        return result;
+    }
+
+    /**
+     * Perform reduction on the factor by fixing a variable to a specific value.
+     *
+     * @param variable Variable to be fixed.
+     * @param value    Value to which the variable is fixed.
+     */
+    public void reduce(Variable variable, String value) {
+        increaseCounter();
+        int position = variables.indexOf(variable);
+        if (position < 0) {
+            return;
+        }
+        int stride = strides[position];
+        int block = stride * cardinalities[position];
+        int offset = stride * variable.getValues().indexOf(value);
 
-        for (Condition conditionToRemove : conditionsToRemove) {
-            values.remove(conditionToRemove);
+        double[] result = new double[table.length / cardinalities[position]];
+        for (int outer = 0, i = 0; outer < table.length; outer += block) {
+            for (int inner = 0; inner < stride; inner++) {
+                result[i++] = table[outer + offset + inner];
+            }
         }
 
-        this.variables = updatedVariables;
+        List<Variable> updatedVariables = new ArrayList<>(variables);
+        updatedVariables.remove(position);
+        setScope(updatedVariables);
+        this.table = result;
     }
 
     /**
      * Perform marginalization by summing out a variable.
-     * 
+     *
      * @param variable Variable to be marginalized.
      */
     public void marginalize(Variable variable) {
-         increaseCounter();
-        // Marginalize the factor by summing over a variable
-        List<Condition> conditionsToRemove = new ArrayList<>();
-        Map<Condition, Double> newValues = new HashMap<>();
-        for (Map.Entry<Condition, Double> entry : values.entrySet()) {
-            Condition condition = entry.getKey();
-            double value = entry.getValue();
-            List<ObsVar> varsToRemove = new ArrayList<>();
-            for (ObsVar obsVar : condition.getObserved()) {
-                if (obsVar.getVar().equals(variable)) {
-                    varsToRemove.add(obsVar);
+        increaseCounter();
+        int position = variables.indexOf(variable);
+        if (position < 0) {
+            return;
+        }
+        int stride = strides[position];
+        int cardinality = cardinalities[position];
+        int block = stride * cardinality;
+
+        double[] result = new double[table.length / cardinality];
+        for (int outer = 0, i = 0; outer < table.length; outer += block, i += stride) {
+            for (int value = 0; value < cardinality; value++) {
+                int from = outer + value * stride;
+                for (int inner = 0; inner < stride; inner++) {
+                    result[i + inner] += table[from + inner];
                 }
             }
-            Condition newCondition = new Condition(new ArrayList<>(condition.getObserved()));
-            newCondition.getObserved().removeAll(varsToRemove);
-            if (!newValues.containsKey(newCondition)) {
-                newValues.put(newCondition, value);
-            } else {
-                newValues.put(newCondition, newValues.get(newCondition) + value);
-            }
-            conditionsToRemove.add(condition);
         }
-        for (Condition conditionToRemove : conditionsToRemove) {
-            values.remove(conditionToRemove);
+
+        List<Variable> updatedVariables = new ArrayList<>(variables);
+        updatedVariables.remove(position);
+        setScope(updatedVariables);
+        this.table = result;
+    }
+
+    /**
+     * Scale the table so that its entries sum to one.
+     */
+    public void normalize() {
+        increaseCounter();
+        double sum = 0.0;
+        for (double value : table) {
+            sum += value;
+        }
+        if (sum > 0.0) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] /= sum;
+            }
         }
-        values.putAll(newValues);
     }
 
     public void increaseCounter() {
@@ -139,11 +308,53 @@ public class Factor {
         return counter;
     }
 
+    /**
+     * Sets the variables of the factor and recomputes the cardinalities and strides.
+     */
+    private void setScope(List<Variable> variables) {
+        this.variables = variables;
+        this.cardinalities = cardinalities(variables);
+        this.strides = new int[cardinalities.length];
+        int stride = 1;
+        for (int l = 0; l < cardinalities.length; l++) {
+            strides[l] = stride;
+            stride *= cardinalities[l];
+        }
+    }
+
+    private static int[] cardinalities(List<Variable> variables) {
+        int[] cardinalities = new int[variables.size()];
+        for (int l = 0; l < cardinalities.length; l++) {
+            cardinalities[l] = variables.get(l).getNumberOfValues();
+        }
+        return cardinalities;
+    }
+
+    private static int size(int[] cardinalities) {
+        int size = 1;
+        for (int cardinality : cardinalities) {
+            size *= cardinality;
+        }
+        return size;
+    }
+
+    /**
+     * Steps an assignment to the next one, with the first variable varying fastest.
+     */
+    private static void next(int[] assignment, int[] cardinalities) {
+        for (int l = 0; l < assignment.length; l++) {
+            if (++assignment[l] < cardinalities[l]) {
+                return;
+            }
+            assignment[l] = 0;
+        }
+    }
+
     @Override
         public String toString() {
             return "Factor{" +
                     "variables=" + variables +
-                    ", values=" + values +
+                    ", values=" + Arrays.toString(table) +
                     '}';
         }
 
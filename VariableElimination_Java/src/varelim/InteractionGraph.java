@@ -0,0 +1,290 @@
+package varelim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Interaction graph of a set of factors, used to find an elimination order.
+ *
+ * Two variables are connected when they appear together in a factor. Eliminating a
+ * variable connects all of its neighbours (the fill edges) and removes it from the
+ * graph. The order is built greedily: the variable with the lowest cost is taken
+ * from an indexed priority queue, the graph is updated in place and only the
+ * variables whose cost could have changed get a new key.
+ *
+ * Supported heuristics:
+ * - min-degree: number of neighbours.
+ * - min-fill: number of fill edges the elimination would add.
+ * - weighted-min-fill: sum over the fill edges of the product of the number of
+ *   values of both endpoints.
+ * - min-weight: size of the factor the elimination would create.
+ */
+public class InteractionGraph {
+
+	private final List<Variable> variables = new ArrayList<>();
+	private final Map<Variable, Integer> ids = new HashMap<>();
+	private final List<Set<Integer>> neighbours = new ArrayList<>();
+
+	/**
+	 * Constructor of the graph.
+	 * @param factors, the factors whose scopes make up the edges.
+	 */
+	public InteractionGraph(List<Factor> factors) {
+		for (Factor factor : factors) {
+			List<Variable> scope = factor.getVariables();
+			for (Variable variable : scope) {
+				id(variable);
+			}
+			for (int i = 0; i < scope.size(); i++) {
+				for (int j = i + 1; j < scope.size(); j++) {
+					connect(ids.get(scope.get(i)), ids.get(scope.get(j)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check if a heuristic name is handled by this class.
+	 * @param heuristic, name of the heuristic.
+	 */
+	public static boolean supports(String heuristic) {
+		switch (heuristic) {
+			case "min-degree":
+			case "min-fill":
+			case "weighted-min-fill":
+			case "min-weight":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Computes an elimination order for the given variables. The graph is consumed in
+	 * the process, create a new one for every order.
+	 * @param toEliminate, the variables that have to be eliminated.
+	 * @param heuristic, one of the heuristics supported by this class.
+	 * @return the variables in the order they should be eliminated.
+	 */
+	public List<Variable> eliminationOrder(List<Variable> toEliminate, String heuristic) {
+		if (!supports(heuristic)) {
+			throw new IllegalArgumentException("Unknown heuristic " + heuristic);
+		}
+		boolean fill = heuristic.equals("min-fill") || heuristic.equals("weighted-min-fill");
+		for (Variable variable : toEliminate) {
+			id(variable);
+		}
+
+		IndexedPriorityQueue queue = new IndexedPriorityQueue(variables.size());
+		for (Variable variable : toEliminate) {
+			int v = ids.get(variable);
+			queue.push(v, cost(v, heuristic));
+		}
+
+		List<Variable> order = new ArrayList<>();
+		Set<Integer> touched = new HashSet<>();
+		while (!queue.isEmpty()) {
+			int v = queue.pop();
+			order.add(variables.get(v));
+
+			Integer[] around = eliminate(v);
+
+			// Degree and weight only change for the neighbours, fill counts also change
+			// for the neighbours of the neighbours through the added edges.
+			touched.clear();
+			for (Integer u : around) {
+				touched.add(u);
+				if (fill) {
+					touched.addAll(neighbours.get(u));
+				}
+			}
+			for (Integer u : touched) {
+				if (queue.contains(u)) {
+					queue.update(u, cost(u, heuristic));
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Eliminates the variables in the given order and returns the clique formed by
+	 * every elimination: the eliminated variable followed by its neighbours at that
+	 * moment. The graph is consumed in the process.
+	 * @param order, the elimination order.
+	 * @return one clique per variable in the order.
+	 */
+	public List<List<Variable>> eliminationCliques(List<Variable> order) {
+		List<List<Variable>> cliques = new ArrayList<>();
+		for (Variable variable : order) {
+			List<Variable> clique = new ArrayList<>();
+			clique.add(variable);
+			for (Integer u : eliminate(id(variable))) {
+				clique.add(variables.get(u));
+			}
+			cliques.add(clique);
+		}
+		return cliques;
+	}
+
+	/**
+	 * Removes a variable from the graph and connects its neighbours.
+	 * @return the neighbours the variable had.
+	 */
+	private Integer[] eliminate(int v) {
+		Integer[] around = neighbours.get(v).toArray(new Integer[0]);
+		for (Integer u : around) {
+			neighbours.get(u).remove(v);
+		}
+		neighbours.get(v).clear();
+		for (int i = 0; i < around.length; i++) {
+			for (int j = i + 1; j < around.length; j++) {
+				connect(around[i], around[j]);
+			}
+		}
+		return around;
+	}
+
+	/**
+	 * Cost of eliminating a variable in the current graph.
+	 */
+	private double cost(int v, String heuristic) {
+		Set<Integer> around = neighbours.get(v);
+		switch (heuristic) {
+			case "min-degree":
+				return around.size();
+			case "min-weight":
+				double weight = variables.get(v).getNumberOfValues();
+				for (Integer u : around) {
+					weight *= variables.get(u).getNumberOfValues();
+				}
+				return weight;
+			default:
+				boolean weighted = heuristic.equals("weighted-min-fill");
+				Integer[] list = around.toArray(new Integer[0]);
+				double fill = 0;
+				for (int i = 0; i < list.length; i++) {
+					for (int j = i + 1; j < list.length; j++) {
+						if (!neighbours.get(list[i]).contains(list[j])) {
+							fill += weighted ? (double) variables.get(list[i]).getNumberOfValues()
+									* variables.get(list[j]).getNumberOfValues() : 1;
+						}
+					}
+				}
+				return fill;
+		}
+	}
+
+	private int id(Variable variable) {
+		Integer id = ids.get(variable);
+		if (id == null) {
+			id = variables.size();
+			ids.put(variable, id);
+			variables.add(variable);
+			neighbours.add(new HashSet<Integer>());
+		}
+		return id;
+	}
+
+	private void connect(int a, int b) {
+		if (a != b) {
+			neighbours.get(a).add(b);
+			neighbours.get(b).add(a);
+		}
+	}
+
+	/**
+	 * Binary min-heap over the ids 0..n-1 that keeps the position of every id, so a
+	 * key can be changed in O(log n). Ties are broken on the lowest id.
+	 */
+	private static class IndexedPriorityQueue {
+		private final int[] heap;
+		private final int[] position;
+		private final double[] keys;
+		private int size = 0;
+
+		IndexedPriorityQueue(int capacity) {
+			heap = new int[capacity];
+			position = new int[capacity];
+			keys = new double[capacity];
+			Arrays.fill(position, -1);
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		boolean contains(int id) {
+			return position[id] >= 0;
+		}
+
+		void push(int id, double key) {
+			keys[id] = key;
+			heap[size] = id;
+			position[id] = size;
+			up(size++);
+		}
+
+		int pop() {
+			int top = heap[0];
+			swap(0, --size);
+			position[top] = -1;
+			down(0);
+			return top;
+		}
+
+		void update(int id, double key) {
+			double old = keys[id];
+			keys[id] = key;
+			if (key < old) {
+				up(position[id]);
+			} else {
+				down(position[id]);
+			}
+		}
+
+		private boolean less(int i, int j) {
+			double a = keys[heap[i]];
+			double b = keys[heap[j]];
+			return a < b || (a == b && heap[i] < heap[j]);
+		}
+
+		private void up(int i) {
+			while (i > 0 && less(i, (i - 1) / 2)) {
+				swap(i, (i - 1) / 2);
+				i = (i - 1) / 2;
+			}
+		}
+
+		private void down(int i) {
+			while (true) {
+				int smallest = i;
+				int left = 2 * i + 1;
+				if (left < size && less(left, smallest)) {
+					smallest = left;
+				}
+				if (left + 1 < size && less(left + 1, smallest)) {
+					smallest = left + 1;
+				}
+				if (smallest == i) {
+					return;
+				}
+				swap(i, smallest);
+				i = smallest;
+			}
+		}
+
+		private void swap(int i, int j) {
+			int a = heap[i];
+			heap[i] = heap[j];
+			heap[j] = a;
+			position[heap[i]] = i;
+			position[heap[j]] = j;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package varelim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Junction tree (clique tree) to compute the posterior of every variable given the
+ * same observations.
+ *
+ * The cliques are the ones formed while eliminating the unobserved variables in an
+ * order from the interaction graph. The clique of a variable is connected to the
+ * clique of the first variable in it that is eliminated later, which gives a tree
+ * with the running intersection property. Every reduced factor is assigned to the
+ * clique of its first eliminated variable.
+ *
+ * The tree is calibrated with Shafer-Shenoy message passing: one pass from the
+ * leaves to the roots and one pass back, after which every clique belief is
+ * proportional to the joint of its variables and the observations.
+ */
+public class JunctionTree {
+
+	private final List<Variable> variables;
+	private final List<ObsVar> observed;
+	private final List<Variable> order;
+	private final List<List<Variable>> cliques;
+	private final int[] parent;
+	private final List<List<Integer>> children = new ArrayList<>();
+	private final Map<Variable, Integer> home = new HashMap<>();
+	private final Factor[] potentials;
+	private final Factor[] upward;
+	private final Factor[] downward;
+	private final Factor[] beliefs;
+
+	/**
+	 * Constructor of the tree, builds and calibrates it.
+	 * @param network, the network to query.
+	 * @param observed, the observed variables.
+	 * @param heuristic, elimination heuristic used to form the cliques, min-fill is
+	 * used if it is not supported by InteractionGraph.
+	 */
+	public JunctionTree(CompiledNetwork network, List<ObsVar> observed, String heuristic) {
+		this.variables = network.getVariables();
+		this.observed = observed;
+		if (!InteractionGraph.supports(heuristic)) {
+			heuristic = "min-fill";
+		}
+
+		List<Factor> factors = new ArrayList<>();
+		List<Variable> unobserved = new ArrayList<>();
+		for (Variable variable : variables) {
+			Factor factor = network.newFactor(variable);
+			for (ObsVar obsVar : observed) {
+				factor.reduce(obsVar.getVar(), obsVar.getValue());
+			}
+			factors.add(factor);
+			if (observedValue(variable) == null) {
+				unobserved.add(variable);
+			}
+		}
+
+		this.order = new InteractionGraph(factors).eliminationOrder(unobserved, heuristic);
+		this.cliques = new InteractionGraph(factors).eliminationCliques(order);
+		for (int i = 0; i < order.size(); i++) {
+			home.put(order.get(i), i);
+			children.add(new ArrayList<Integer>());
+		}
+
+		// The parent of a clique is the clique of its first variable eliminated later
+		this.parent = new int[order.size()];
+		for (int i = 0; i < order.size(); i++) {
+			parent[i] = -1;
+			for (Variable variable : cliques.get(i)) {
+				int j = home.get(variable);
+				if (j > i && (parent[i] < 0 || j < parent[i])) {
+					parent[i] = j;
+				}
+			}
+			if (parent[i] >= 0) {
+				children.get(parent[i]).add(i);
+			}
+		}
+
+		List<List<Factor>> assigned = new ArrayList<>();
+		for (int i = 0; i < order.size(); i++) {
+			assigned.add(new ArrayList<Factor>());
+			assigned.get(i).add(unit(cliques.get(i)));
+		}
+		for (Factor factor : factors) {
+			int first = -1;
+			for (Variable variable : factor.getVariables()) {
+				int j = home.get(variable);
+				if (first < 0 || j < first) {
+					first = j;
+				}
+			}
+			if (first >= 0) { // factors without variables are constants and drop out
+				assigned.get(first).add(factor);
+			}
+		}
+
+		this.potentials = new Factor[order.size()];
+		for (int i = 0; i < order.size(); i++) {
+			potentials[i] = Factor.product(assigned.get(i));
+		}
+		this.upward = new Factor[order.size()];
+		this.downward = new Factor[order.size()];
+		this.beliefs = new Factor[order.size()];
+		calibrate();
+	}
+
+	/**
+	 * Sends the messages to the roots and back and computes the clique beliefs. A
+	 * parent is always eliminated after its children, so going through the cliques
+	 * in elimination order visits every child before its parent.
+	 */
+	private void calibrate() {
+		for (int i = 0; i < order.size(); i++) {
+			if (parent[i] >= 0) {
+				List<Factor> incoming = new ArrayList<>();
+				incoming.add(potentials[i]);
+				for (int child : children.get(i)) {
+					incoming.add(upward[child]);
+				}
+				Factor message = Factor.product(incoming);
+				message.marginalize(order.get(i));
+				upward[i] = message;
+			}
+		}
+
+		for (int i = order.size() - 1; i >= 0; i--) {
+			for (int child : children.get(i)) {
+				List<Factor> incoming = new ArrayList<>();
+				incoming.add(potentials[i]);
+				if (downward[i] != null) {
+					incoming.add(downward[i]);
+				}
+				for (int sibling : children.get(i)) {
+					if (sibling != child) {
+						incoming.add(upward[sibling]);
+					}
+				}
+				downward[child] = project(Factor.product(incoming), cliques.get(child));
+			}
+		}
+
+		for (int i = 0; i < order.size(); i++) {
+			List<Factor> incoming = new ArrayList<>();
+			incoming.add(potentials[i]);
+			if (downward[i] != null) {
+				incoming.add(downward[i]);
+			}
+			for (int child : children.get(i)) {
+				incoming.add(upward[child]);
+			}
+			beliefs[i] = Factor.product(incoming);
+		}
+	}
+
+	/**
+	 * Posterior distribution of a variable given the observations.
+	 * @param variable, a variable of the network.
+	 * @return a normalized factor over the variable.
+	 */
+	public Factor getMarginal(Variable variable) {
+		List<Variable> scope = new ArrayList<>();
+		scope.add(variable);
+		Factor marginal;
+		String value = observedValue(variable);
+		if (value != null) {
+			marginal = new Factor(scope);
+			marginal.getTable()[variable.getValues().indexOf(value)] = 1.0;
+		} else {
+			marginal = project(beliefs[home.get(variable)], scope);
+		}
+		marginal.normalize();
+		return marginal;
+	}
+
+	/**
+	 * Posterior distributions of all variables given the observations.
+	 * @return a normalized factor per variable, in the order of the network.
+	 */
+	public Map<Variable, Factor> getMarginals() {
+		Map<Variable, Factor> marginals = new LinkedHashMap<>();
+		for (Variable variable : variables) {
+			marginals.put(variable, getMarginal(variable));
+		}
+		return marginals;
+	}
+
+	/**
+	 * Prints the posterior distribution of every variable.
+	 */
+	public void printMarginals() {
+		System.out.println("Junction tree with " + cliques.size() + " cliques, posterior distributions:");
+		for (Factor marginal : getMarginals().values()) {
+			for (Map.Entry<Condition, Double> entry : marginal.getValues().entrySet()) {
+				System.out.println(entry.getKey() + " => " + entry.getValue());
+			}
+		}
+	}
+
+	private String observedValue(Variable variable) {
+		for (ObsVar obsVar : observed) {
+			if (obsVar.getVar() == variable) {
+				return obsVar.getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sums out every variable of a factor that is not in the given scope.
+	 */
+	private static Factor project(Factor factor, List<Variable> scope) {
+		Factor result = new Factor(factor);
+		for (Variable variable : factor.getVariables()) {
+			if (!scope.contains(variable)) {
+				result.marginalize(variable);
+			}
+		}
+		return result;
+	}
+
+	private static Factor unit(List<Variable> scope) {
+		Factor factor = new Factor(scope);
+		double[] table = factor.getTable();
+		for (int i = 0; i < table.length; i++) {
+			table[i] = 1.0;
+		}
+		return factor;
+	}
+}
@@ -45,7 +45,17 @@ public class Main {
 		//PUT YOUR CALL TO THE VARIABLE ELIMINATION ALGORITHM HERE
 		
         // Call the variableElimination method
-		VariableElimination.variableElimination(ui, variables, heuristic);
+		CompiledNetwork network = new CompiledNetwork(variables);
+		if (ApproximateInference.supports(heuristic)) {
+			// Sampling engines for networks that are too large for exact inference
+			ApproximateInference.approximateInference(ui, network, heuristic);
+			return;
+		}
+		VariableElimination.variableElimination(ui, network, heuristic);
+		
+		// Posterior of every variable given the same observations, from one calibrated junction tree
+		JunctionTree tree = new JunctionTree(network, ui.getObservedVariables(), heuristic);
+		tree.printMarginals();
 
 	}
 }
\ No newline at end of file
@@ -1,190 +1,231 @@
 package varelim;
 
-import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Class that reads in a network from a .bif file and puts the variables and probabilities at the right places.
- * 
+ *
+ * The file is memory-mapped and read with a BifTokenizer, so the layout of the lines does not matter.
+ * Variables are found by name through a hash index and every row of probabilities is written straight
+ * into the probability table of its variable.
+ *
  * @author Marcel de Korte, Moira Berens, Djamari Oetringer, Abdullahi Ali, Leonieke van den Bulk
- * 
+ *
  * Modified to use the new Varaible & Condition based- data structure.
  * @author Pepe Tiebosch
  */
 public class Networkreader {
 
 	private ArrayList<Variable> vs = new ArrayList<Variable>();
+	private Map<String, Variable> byName = new HashMap<String, Variable>();
 
 	/**
 	 * Constructor reads in the data file and adds the variables and its
 	 * probabilities to the designated arrayLists.
-	 * 
+	 *
 	 * @param file, the name of the .bif file that contains the network.
 	 */
 	public Networkreader(String file) {
-		BufferedReader br = null;
-		try {
-			String cur; // Keeping track of current line observed by BufferedReader
-			Variable curVar = null;
-			br = new BufferedReader(new FileReader(file)); 
-			try {
-				while ((cur = br.readLine()) != null) {
-					if (cur.contains("variable")) { 
-						//Add variable to the list
-						String varName = cur.substring(9, cur.length() - 2);
-						cur = br.readLine();
-						ArrayList<String> possibleValues = searchForValues(cur);
-						vs.add(new Variable(varName, possibleValues));
-					}
-					if (cur.contains("probability")) { 
-						// Conditional to check for parents of selected variable
-						curVar = searchForParents(cur);
-					}
-					if (cur.contains("table")) { 
-						// Conditional to find probabilities of 1 row and add Probabilities to
-						// probability list
-						searchForProbs(cur, curVar);
-					}
-					if (cur.contains(")") && cur.contains("(") && !cur.contains("prob")) {
-						// Conditional to find probabilities of more than 1 row;
-						// add probabilities to probability list
-						searchForProbs(cur, curVar);
+		try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			BifTokenizer tokens = new BifTokenizer(buffer);
+			while (tokens.hasNext()) {
+				String keyword = tokens.word();
+				if (keyword.equals("variable")) {
+					readVariable(tokens);
+				} else if (keyword.equals("probability")) {
+					readProbability(tokens);
+				} else {
+					// network block or anything else this reader does not use
+					while (tokens.peek() != '{') {
+						tokens.word();
 					}
+					tokens.skipBlock();
 				}
-			} catch (IOException e) {
-			} catch (IllegalArgumentException e) {
-				System.out.println(e.getMessage());
-				System.exit(0);
 			}
 		} catch (FileNotFoundException e) {
 			System.out.println("This file does not exist.");
 			System.exit(0);
+		} catch (IOException e) {
+			System.out.println("This file could not be read: " + e.getMessage());
+			System.exit(0);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.exit(0);
 		}
 	}
 
 	/**
-	 * Searches for a row of probabilities in a string
-	 * 
-	 * @param a string s
-	 * @return a ProbRow
+	 * Reads a variable block: its name and the list of values.
 	 */
-	private Map<Condition, Double> searchForProbs(String s, Variable curVar) throws IllegalArgumentException {
-		if(curVar == null) {
-			throw new IllegalArgumentException("This network is malformed");
+	private void readVariable(BifTokenizer tokens) {
+		String varName = tokens.word();
+		ArrayList<String> possibleValues = null;
+		tokens.expect('{');
+		while (!tokens.accept('}')) {
+			String keyword = tokens.word();
+			if (keyword.equals("type")) {
+				tokens.word(); // discrete
+				tokens.expect('[');
+				tokens.word();
+				tokens.expect(']');
+				tokens.expect('{');
+				possibleValues = new ArrayList<String>();
+				do {
+					possibleValues.add(tokens.word());
+				} while (tokens.accept(','));
+				tokens.expect('}');
+				tokens.expect(';');
+			} else {
+				tokens.skipStatement();
+			}
 		}
-		Map<Condition, Double> probabilities = new HashMap<>();
+		if (possibleValues == null || byName.containsKey(varName)) {
+			throw tokens.error("Variable " + varName + " has no values or is defined twice");
+		}
+		Variable variable = new Variable(varName, possibleValues);
+		vs.add(variable);
+		byName.put(varName, variable);
+	}
 
-		int beginIndex = s.indexOf(')') + 2;
-		if (s.contains("table")) {
-			beginIndex = s.indexOf('e') + 2;
+	/**
+	 * Reads a probability block: the parents of the variable and its rows of probabilities.
+	 */
+	private void readProbability(BifTokenizer tokens) {
+		tokens.expect('(');
+		Variable var = getVarByName(tokens, tokens.word());
+		ArrayList<Variable> parents = new ArrayList<>();
+		if (tokens.accept('|')) {
+			do {
+				parents.add(getVarByName(tokens, tokens.word()));
+			} while (tokens.accept(','));
 		}
+		tokens.expect(')');
+		var.setParents(parents);
 
-		int endIndex = s.length() - 1;
-		String subString = s.substring(beginIndex, endIndex);
-		String[] probsString = subString.split(", ");
-		double[] probs = new double[probsString.length];
-		for (int i = 0; i < probsString.length; i++) {
-			probs[i] = Double.parseDouble(probsString[i]);
+		double[] table = var.getTable();
+		int cardinality = var.getNumberOfValues();
+		boolean[] written = new boolean[table.length / cardinality];
+		int[] rowStrides = new int[parents.size()];
+		for (int j = 0; j < parents.size(); j++) {
+			rowStrides[j] = var.getStride(parents.get(j)) / cardinality;
 		}
-		
-		if (s.contains("table")) {
-			for(int i=0; i<probs.length; i++) {
-				ObsVar obsVar = new ObsVar(curVar, curVar.getValues().get(i));
-				Condition cond = new Condition(Arrays.asList(obsVar));
-				probabilities.put(cond, probs[i]);
+		double[] defaults = null;
+		tokens.expect('{');
+		while (!tokens.accept('}')) {
+			if (tokens.peek() == '(') {
+				tokens.expect('(');
+				int row = 0;
+				for (int j = 0; j < parents.size(); j++) {
+					if (j > 0) {
+						tokens.expect(',');
+					}
+					Variable parent = parents.get(j);
+					String value = tokens.word();
+					int index = parent.getValues().indexOf(value);
+					if (index < 0) {
+						throw tokens.error(value + " is not a value of " + parent.getName());
+					}
+					row += index * rowStrides[j];
+				}
+				tokens.expect(')');
+				readRow(tokens, table, row * cardinality, cardinality);
+				written[row] = true;
+			} else {
+				String keyword = tokens.word();
+				if (keyword.equals("table")) {
+					// The values of the variable vary slowest and the last parent fastest,
+					// unlike the table of the variable, so every entry is moved to its place
+					double[] values = new double[table.length];
+					readRow(tokens, values, 0, values.length);
+					int[] rows = tableRows(parents, rowStrides);
+					for (int k = 0; k < values.length; k++) {
+						table[rows[k % rows.length] * cardinality + k / rows.length] = values[k];
+					}
+					for (int row = 0; row < written.length; row++) {
+						written[row] = true;
+					}
+				} else if (keyword.equals("default")) {
+					defaults = new double[cardinality];
+					readRow(tokens, defaults, 0, cardinality);
+				} else {
+					tokens.skipStatement();
+				}
 			}
-		} else {
-			beginIndex = s.indexOf('(') + 1;
-			endIndex = s.indexOf(')');
-			subString = s.substring(beginIndex, endIndex);
-			String[] stringValues = subString.split(", ");
-			
-			for(int i=0; i<probs.length; i++) {
-				ArrayList<ObsVar> obsVars = new ArrayList<ObsVar>();
-				obsVars.add(new ObsVar(curVar, curVar.getValues().get(i)));
-				for(int j = 0; j < curVar.getNrOfParents(); j++) {
-					obsVars.add(new ObsVar(curVar.getParents().get(j), stringValues[j]));
+		}
+		for (int row = 0; row < written.length; row++) {
+			if (!written[row]) {
+				if (defaults == null) {
+					throw tokens.error("Missing probabilities for " + var.getName());
 				}
-				Condition cond = new Condition(obsVars);
-				probabilities.put(cond, probs[i]);
+				System.arraycopy(defaults, 0, table, row * cardinality, cardinality);
 			}
 		}
-		curVar.addProbabilities(probabilities);
-
-		return probabilities;
 	}
 
 	/**
-	 * Searches for values in a string
-	 * 
-	 * @param a string s
-	 * @return a list of values
+	 * Maps the order of the parent values in a table statement, where the last parent varies
+	 * fastest, to the rows of the table of the variable.
+	 * @return for every row of the table statement, the row in the table of the variable.
 	 */
-	public ArrayList<String> searchForValues(String s) {
-		int beginIndex = s.indexOf('{') + 2;
-		int endIndex = s.length() - 3;
-		String subString = s.substring(beginIndex, endIndex);
-		String[] valueArray = subString.split(", ");
-		return new ArrayList<String>(Arrays.asList(valueArray));
+	private int[] tableRows(ArrayList<Variable> parents, int[] rowStrides) {
+		int count = 1;
+		for (Variable parent : parents) {
+			count *= parent.getNumberOfValues();
+		}
+		int[] rows = new int[count];
+		for (int k = 0; k < count; k++) {
+			int rest = k;
+			for (int j = parents.size() - 1; j >= 0; j--) {
+				int values = parents.get(j).getNumberOfValues();
+				rows[k] += rest % values * rowStrides[j];
+				rest /= values;
+			}
+		}
+		return rows;
 	}
 
 	/**
-	 * Method to check parents of chosen variable.
-	 * 
-	 * @param cur, which gives the current line.
+	 * Reads a comma-separated list of count probabilities, ended by a ';', into the table.
 	 */
-	private Variable searchForParents(String cur) {
-		if (cur.contains("|")) { // Variable has parents
-			ArrayList<Variable> parents = new ArrayList<>();
-			String varName = cur.substring(14, cur.indexOf("|") - 1);
-			Variable var = getVarByName(varName);
-
-			String sub = cur.substring(cur.indexOf('|') + 2, cur.indexOf(')') - 1);
-			while (sub.contains(",")) { // Variable has multiple parents
-				String current = sub.substring(0, sub.indexOf(','));
-				sub = sub.substring(sub.indexOf(',') + 2);
-				parents.add(getVarByName(current));
+	private void readRow(BifTokenizer tokens, double[] table, int offset, int count) {
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				tokens.expect(',');
 			}
-			parents.add(getVarByName(sub));
-	
-			var.setParents(parents);
-			return var;
-		} else {
-			String varName = cur.substring(14, cur.indexOf(")") - 1);
-			return getVarByName(varName);
+			table[offset + i] = tokens.number();
 		}
+		tokens.expect(';');
 	}
 
 	/**
 	 * Gets a variable from variable Vs when the name is given
-	 * 
+	 *
 	 * @param name
 	 * @return variable with name as name
 	 */
-	private Variable getVarByName(String name) {
-		Variable var = null;
-		for(Variable v : vs) {
-			if(name.equals(v.getName())) {
-				var = v;
-				break;
-			}
+	private Variable getVarByName(BifTokenizer tokens, String name) {
+		Variable var = byName.get(name);
+		if (var == null) {
+			throw tokens.error("Unknown variable " + name);
 		}
 		return var;
 	}
 
 	/**
 	 * Getter of the variables
-	 * 
+	 *
 	 * @return the network as list of variables
 	 */
 	public ArrayList<Variable> getVariables() {
 		return vs;
 	}
 
-}
\ No newline at end of file
+}
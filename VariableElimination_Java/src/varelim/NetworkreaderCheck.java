@@ -0,0 +1,59 @@
+package varelim;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the parts of the .bif reader that are easy to get wrong: a table statement for a
+ * variable with parents must give the same probabilities as the same numbers written as
+ * conditional rows, and names with non-ASCII characters must be read as UTF-8.
+ *
+ * Usage: NetworkreaderCheck
+ */
+public class NetworkreaderCheck {
+
+	private static final String VARIABLES =
+			"network unknown {\n}\n"
+			+ "variable A {\n  type discrete [ 2 ] { a0, a1 };\n}\n"
+			+ "variable B {\n  type discrete [ 3 ] { b0, b1, b2 };\n}\n"
+			+ "variable C {\n  type discrete [ 2 ] { c0, c1 };\n}\n"
+			+ "probability ( A ) {\n  table 0.3, 0.7;\n}\n"
+			+ "probability ( B ) {\n  table 0.2, 0.3, 0.5;\n}\n";
+
+	public static void main(String[] args) throws IOException {
+		// P(C | A, B): the table lists all values c0 first, then all c1, with B varying fastest
+		String table = VARIABLES
+				+ "probability ( C | A, B ) {\n"
+				+ "  table 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.9, 0.8, 0.7, 0.6, 0.5, 0.4;\n}\n";
+		String rows = VARIABLES
+				+ "probability ( C | A, B ) {\n"
+				+ "  (a0, b0) 0.1, 0.9;\n  (a0, b1) 0.2, 0.8;\n  (a0, b2) 0.3, 0.7;\n"
+				+ "  (a1, b0) 0.4, 0.6;\n  (a1, b1) 0.5, 0.5;\n  (a1, b2) 0.6, 0.4;\n}\n";
+		double[] fromTable = read(table).get(2).getTable();
+		double[] fromRows = read(rows).get(2).getTable();
+		System.out.println("table with parents: " + (Arrays.equals(fromTable, fromRows) ? "OK" : "mismatch")
+				+ " " + Arrays.toString(fromTable) + " " + Arrays.toString(fromRows));
+
+		String names = "network unknown {\n}\n"
+				+ "variable \u00dcberfall {\n  type discrete [ 2 ] { ja, nein };\n}\n"
+				+ "variable Gr\u00f6\u00dfe {\n  type discrete [ 2 ] { gro\u00df, klein };\n}\n"
+				+ "probability ( \u00dcberfall ) {\n  table 0.1, 0.9;\n}\n"
+				+ "probability ( Gr\u00f6\u00dfe | \u00dcberfall ) {\n  (ja) 0.8, 0.2;\n  (nein) 0.3, 0.7;\n}\n";
+		List<Variable> variables = read(names);
+		boolean namesMatch = variables.get(0).getName().equals("\u00dcberfall") && variables.get(1).getName().equals("Gr\u00f6\u00dfe")
+				&& variables.get(1).isValueOf("gro\u00df");
+		System.out.println("UTF-8 names: " + (namesMatch ? "OK" : "mismatch") + " " + variables.get(0).getName() + ", "
+				+ variables.get(1).getName() + " " + variables.get(1).getValues());
+	}
+
+	private static List<Variable> read(String contents) throws IOException {
+		File file = File.createTempFile("network", ".bif");
+		file.deleteOnExit();
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+		return new Networkreader(file.getPath()).getVariables();
+	}
+}
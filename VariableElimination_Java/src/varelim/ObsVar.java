@@ -3,15 +3,31 @@ package varelim;
 /**
  * Observed variable, contains a pointer to a variable and its observed value
  * 
+ * The value is also kept as its index in the values of the variable, so observed
+ * variables are compared and hashed on two ints instead of on strings.
+ * 
  * @author Pepe Tiebosch
  */
 public class ObsVar {
 	private Variable variable;
 	private String value;
+	private int valueIndex;
 	
 	public ObsVar(Variable var, String observed) {
 		this.variable = var;
 		this.value = observed;
+		this.valueIndex = var.getValues().indexOf(observed);
+	}
+	
+	/**
+	 * Constructor from the index of the value, without looking up the string.
+	 * @param var the variable
+	 * @param valueIndex index of the observed value in var.getValues()
+	 */
+	public ObsVar(Variable var, int valueIndex) {
+		this.variable = var;
+		this.value = var.getValues().get(valueIndex);
+		this.valueIndex = valueIndex;
 	}
 	
 
@@ -19,6 +35,13 @@ public class ObsVar {
 		return this.value;
 	}
 	
+	/**
+	 * @return index of the value in the values of the variable
+	 */
+	public int getValueIndex() {
+		return this.valueIndex;
+	}
+	
 	public Variable getVar() {
 		return this.variable;
 	}
@@ -31,13 +54,20 @@ public class ObsVar {
 	}
 	
 	/**
-	 * Equality checker based only on name and Value
+	 * Equality checker based only on the variable and the index of the value
 	 * @param other Observed Variable
 	 */
-	public boolean equals(ObsVar other) {
-		if (other.getName().equals(getName()) && other.value.equals(value)) {
-			return true;
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof ObsVar)) {
+			return false;
 		}
-		return false;
+		ObsVar obsVar = (ObsVar) other;
+		return obsVar.variable.getId() == variable.getId() && obsVar.valueIndex == valueIndex;
+	}
+	
+	@Override
+	public int hashCode() {
+		return variable.getId() * 31 + valueIndex;
 	}
 }
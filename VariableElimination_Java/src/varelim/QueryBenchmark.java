@@ -0,0 +1,81 @@
+package varelim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the query throughput of variable elimination on one compiled network with
+ * 1 up to N threads. Every thread count answers the same random queries, and the
+ * answers are compared with a sequential run to check that queries do not leak into
+ * each other.
+ *
+ * Usage: QueryBenchmark [network.bif] [number of queries] [max threads]
+ */
+public class QueryBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String file = args.length > 0 ? args[0] : "survey.bif";
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		final CompiledNetwork network = new CompiledNetwork(new Networkreader(file).getVariables());
+		final List<Variable> variables = network.getVariables();
+		final Variable[] queries = new Variable[count];
+		final List<List<ObsVar>> observations = new ArrayList<>();
+		Random random = new Random(42);
+		for (int i = 0; i < count; i++) {
+			queries[i] = variables.get(random.nextInt(variables.size()));
+			List<ObsVar> observed = new ArrayList<>();
+			for (Variable variable : variables) {
+				if (variable != queries[i] && random.nextInt(4) == 0) {
+					observed.add(new ObsVar(variable, variable.getValues().get(random.nextInt(variable.getNumberOfValues()))));
+				}
+			}
+			observations.add(observed);
+		}
+
+		final double[][] expected = new double[count][];
+		for (int i = 0; i < count; i++) {
+			expected[i] = new VariableElimination(network, false).query(queries[i], observations.get(i), "min-fill").getTable();
+		}
+
+		System.out.println("Network " + file + ", " + count + " queries");
+		double single = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			List<Callable<double[]>> tasks = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				final int q = i;
+				tasks.add(new Callable<double[]>() {
+					@Override
+					public double[] call() {
+						return new VariableElimination(network, false).query(queries[q], observations.get(q), "min-fill").getTable();
+					}
+				});
+			}
+			long start = System.nanoTime();
+			List<Future<double[]>> results = pool.invokeAll(tasks);
+			long time = System.nanoTime() - start;
+			pool.shutdown();
+
+			int mismatches = 0;
+			for (int i = 0; i < count; i++) {
+				if (!Arrays.equals(expected[i], results.get(i).get())) {
+					mismatches++;
+				}
+			}
+			double throughput = count / (time / 1e9);
+			if (threads == 1) {
+				single = throughput;
+			}
+			System.out.printf("%2d threads: %10.0f queries/s, speedup %.2f, mismatches %d%n", threads, throughput,
+					throughput / single, mismatches);
+		}
+	}
+}
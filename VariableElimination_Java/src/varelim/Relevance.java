@@ -0,0 +1,108 @@
+package varelim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the part of a network that is needed to answer a query, so the rest of the
+ * network does not have to be turned into factors and eliminated.
+ *
+ * Two passes are made. First the barren nodes are removed: only the query, the
+ * observed variables and their ancestors are kept. Then a Bayes-ball traversal is
+ * started from the query on what is left. A variable whose probabilities are needed
+ * is marked on top by the ball; every other variable is d-separated from the query
+ * given the observed variables, or is observed itself.
+ */
+public class Relevance {
+
+	/**
+	 * Computes the variables whose probabilities are needed for a query.
+	 * @param variables, all variables of the network.
+	 * @param query, the queried variable.
+	 * @param observed, the observed variables.
+	 * @return the requisite variables, in the order of the network.
+	 */
+	public static List<Variable> requisiteVariables(List<Variable> variables, Variable query, List<ObsVar> observed) {
+		Set<Variable> evidence = new HashSet<>();
+		for (ObsVar obsVar : observed) {
+			evidence.add(obsVar.getVar());
+		}
+
+		// Barren nodes: anything that is not an ancestor of the query or the evidence
+		Set<Variable> ancestral = new HashSet<>();
+		Deque<Variable> stack = new ArrayDeque<>(evidence);
+		stack.push(query);
+		while (!stack.isEmpty()) {
+			Variable variable = stack.pop();
+			if (ancestral.add(variable)) {
+				for (Variable parent : variable.getParents()) {
+					stack.push(parent);
+				}
+			}
+		}
+
+		Map<Variable, List<Variable>> children = new HashMap<>();
+		for (Variable variable : ancestral) {
+			children.put(variable, new ArrayList<Variable>());
+		}
+		for (Variable variable : ancestral) {
+			for (Variable parent : variable.getParents()) {
+				children.get(parent).add(variable);
+			}
+		}
+
+		// Bayes-ball from the query, a visit is either from a child or from a parent
+		Set<Variable> top = new HashSet<>();
+		Set<Variable> bottom = new HashSet<>();
+		Deque<Variable> schedule = new ArrayDeque<>();
+		Deque<Boolean> fromChild = new ArrayDeque<>();
+		schedule.push(query);
+		fromChild.push(true);
+		while (!schedule.isEmpty()) {
+			Variable variable = schedule.pop();
+			boolean upwards = fromChild.pop();
+			boolean isObserved = evidence.contains(variable);
+			if (upwards && !isObserved) {
+				if (top.add(variable)) {
+					for (Variable parent : variable.getParents()) {
+						schedule.push(parent);
+						fromChild.push(true);
+					}
+				}
+				if (bottom.add(variable)) {
+					for (Variable child : children.get(variable)) {
+						schedule.push(child);
+						fromChild.push(false);
+					}
+				}
+			} else if (!upwards) {
+				if (isObserved && top.add(variable)) {
+					for (Variable parent : variable.getParents()) {
+						schedule.push(parent);
+						fromChild.push(true);
+					}
+				}
+				if (!isObserved && bottom.add(variable)) {
+					for (Variable child : children.get(variable)) {
+						schedule.push(child);
+						fromChild.push(false);
+					}
+				}
+			}
+		}
+
+		List<Variable> requisite = new ArrayList<>();
+		for (Variable variable : variables) {
+			if (top.contains(variable)) {
+				requisite.add(variable);
+			}
+		}
+		return requisite;
+	}
+}
@@ -0,0 +1,51 @@
+package varelim;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the start-up of a process that parses a .bif file with one that maps the
+ * compiled binary network: the time to load the network and the time to answer the
+ * first query on it. The first round runs on cold code, the other rounds show the
+ * load time once the JIT has warmed up.
+ *
+ * Usage: StartupBenchmark [network.bif] [rounds]
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String bif = args.length > 0 ? args[0] : "survey.bif";
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		File binary = File.createTempFile("network", ".bnet");
+		binary.deleteOnExit();
+		BinaryNetwork.write(new Networkreader(bif).getVariables(), binary.getPath());
+		System.out.println(bif + ": " + new File(bif).length() + " bytes as text, " + binary.length() + " bytes compiled");
+
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			List<Variable> parsed = new Networkreader(bif).getVariables();
+			long parseTime = System.nanoTime() - start;
+			long parseQuery = firstQuery(parsed);
+
+			start = System.nanoTime();
+			List<Variable> mapped = BinaryNetwork.read(binary.getPath());
+			long mapTime = System.nanoTime() - start;
+			long mapQuery = firstQuery(mapped);
+
+			System.out.printf("round %2d: parse %8.3f ms + query %8.3f ms | map %8.3f ms + query %8.3f ms%n", round,
+					parseTime / 1e6, parseQuery / 1e6, mapTime / 1e6, mapQuery / 1e6);
+		}
+	}
+
+	/**
+	 * Compiles the network and asks for the posterior of its first variable.
+	 * @return the time taken in nanoseconds.
+	 */
+	private static long firstQuery(List<Variable> variables) {
+		long start = System.nanoTime();
+		CompiledNetwork network = new CompiledNetwork(variables);
+		new VariableElimination(network, false).query(variables.get(0), new ArrayList<ObsVar>(), "min-fill");
+		return System.nanoTime() - start;
+	}
+}
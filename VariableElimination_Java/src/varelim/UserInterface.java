@@ -215,7 +215,9 @@ public class UserInterface {
 	 * Asks for a heuristic.
 	 */
 	public void askForHeuristic() {
-		System.out.println("Supply a heuristic. Input 1 for least-incoming, 2 for fewest-factors and enter for random");
+		System.out.println("Supply a heuristic. Input 1 for least-incoming, 2 for fewest-factors, 3 for min-degree, \n"
+				+ "4 for min-fill, 5 for weighted-min-fill, 6 for min-weight and enter for random.\n"
+				+ "Input 7 for approximate inference by likelihood weighting or 8 by Gibbs sampling");
 		scan = new Scanner(System.in);
 		line = scan.nextLine();
 		if (line.isEmpty()) {
@@ -227,6 +229,24 @@ public class UserInterface {
 		} else if (line.equals("2")) {
 			heuristic = "fewest-factors";
 			System.out.println("You have chosen for fewest-factors");
+		} else if (line.equals("3")) {
+			heuristic = "min-degree";
+			System.out.println("You have chosen for min-degree");
+		} else if (line.equals("4")) {
+			heuristic = "min-fill";
+			System.out.println("You have chosen for min-fill");
+		} else if (line.equals("5")) {
+			heuristic = "weighted-min-fill";
+			System.out.println("You have chosen for weighted-min-fill");
+		} else if (line.equals("6")) {
+			heuristic = "min-weight";
+			System.out.println("You have chosen for min-weight");
+		} else if (line.equals("7")) {
+			heuristic = "likelihood-weighting";
+			System.out.println("You have chosen for likelihood-weighting");
+		} else if (line.equals("8")) {
+			heuristic = "gibbs";
+			System.out.println("You have chosen for gibbs");
 		} else {
 			System.out.println(line + " is not an option. Please try again");
 			askForHeuristic();
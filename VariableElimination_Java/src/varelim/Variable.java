@@ -1,9 +1,10 @@
 package varelim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class to represent a variable.
@@ -15,10 +16,13 @@ import java.util.Map;
  */
 public class Variable {
 
+	private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+	private final int id = NEXT_ID.getAndIncrement(); // Unique per variable, used to hash and compare conditions
 	private String name;
 	private ArrayList<String> possibleValues;
 	private ArrayList<Variable> parents; // Note that parents is not set in the constructor, because of the .bif file layout
-	private Map<Condition, Double> probabilities; // Note that probabilities are not set in the constructor because of the .bif file layour
+	private double[] table; // Probabilities given the parents, the value of this variable varies fastest, then the parents in order
 
 	/**
 	 * Constructor of the class.
@@ -29,7 +33,7 @@ public class Variable {
 		this.name = name;
 		this.possibleValues = possibleValues;
 		this.parents = new ArrayList<Variable>();
-		this.probabilities = new HashMap<>();
+		this.table = new double[possibleValues.size()];
 	}
 	
 	/**
@@ -47,6 +51,19 @@ public class Variable {
 	public boolean equals(Variable other) {
 		return (other.getName().equals(name) && other.possibleValues.equals(possibleValues));
 	}
+	
+	/**
+	 * Getter of the id of the variable, unique among all variables created in this process.
+	 * @return the id as an int.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	@Override
+	public int hashCode() {
+		return id;
+	}
 
 	public void addProbabilities(Map<Condition, Double> probabilities) throws IllegalArgumentException {
 		for(Map.Entry<Condition, Double> entry : probabilities.entrySet()) {
@@ -56,11 +73,68 @@ public class Variable {
 				}
 			}
 		}
-		this.probabilities.putAll(probabilities);
+		for(Map.Entry<Condition, Double> entry : probabilities.entrySet()) {
+			int index = 0;
+			for(ObsVar obsVar : entry.getKey().getObserved()) {
+				if(obsVar.getVar() == this) {
+					index += obsVar.getValueIndex();
+				} else {
+					index += getStride(obsVar.getVar()) * obsVar.getValueIndex();
+				}
+			}
+			this.table[index] = entry.getValue();
+		}
 	}
 	
+	/**
+	 * View of the probabilities of the variable given its parents. The map is built from
+	 * the table on every call, every condition starts with this variable followed by the parents.
+	 * @return map of conditions and corresponding probabilities.
+	 */
 	public Map<Condition, Double> getProbabilities() {
-		return this.probabilities;
+		Map<Condition, Double> probabilities = new LinkedHashMap<>();
+		int[] assignment = new int[parents.size() + 1];
+		for(int i = 0; i < table.length; i++) {
+			ArrayList<ObsVar> observed = new ArrayList<>();
+			observed.add(new ObsVar(this, assignment[0]));
+			for(int j = 0; j < parents.size(); j++) {
+				observed.add(new ObsVar(parents.get(j), assignment[j + 1]));
+			}
+			probabilities.put(new Condition(observed), table[i]);
+			for(int j = 0; j < assignment.length; j++) {
+				int cardinality = j == 0 ? possibleValues.size() : parents.get(j - 1).getNumberOfValues();
+				if(++assignment[j] < cardinality) {
+					break;
+				}
+				assignment[j] = 0;
+			}
+		}
+		return probabilities;
+	}
+	
+	/**
+	 * Getter of the probability table, laid out with this variable varying fastest followed by the
+	 * parents in order. The array is not copied and can be filled in directly.
+	 * @return the table as an array of doubles.
+	 */
+	public double[] getTable() {
+		return table;
+	}
+	
+	/**
+	 * Getter of the stride of a parent in the probability table.
+	 * @param parent, one of the parents of this variable.
+	 * @return the distance in the table between two consecutive values of the parent.
+	 */
+	public int getStride(Variable parent) {
+		int stride = possibleValues.size();
+		for(Variable other : parents) {
+			if(other == parent) {
+				return stride;
+			}
+			stride *= other.getNumberOfValues();
+		}
+		throw new IllegalArgumentException(parent.getName() + " is not a parent of " + name);
 	}
 
 	/**
@@ -110,6 +184,11 @@ public class Variable {
 	 */
 	public void setParents(ArrayList<Variable> parents) {
 		this.parents = parents;
+		int size = possibleValues.size();
+		for(Variable parent : parents) {
+			size *= parent.getNumberOfValues();
+		}
+		this.table = new double[size];
 	}
 
 	/**
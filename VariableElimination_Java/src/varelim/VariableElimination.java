@@ -1,28 +1,72 @@
 package varelim;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Variable elimination for a single query on a compiled network.
+ *
+ * An instance is the inference context of one query: it owns the factors of that
+ * query and is not shared. Any number of instances can run at the same time on the
+ * same CompiledNetwork, since the network is only read.
+ */
 public class VariableElimination {
-    private static final List<Factor> factors = new ArrayList<>();
+    private final CompiledNetwork network;
+    private final boolean verbose;
+    private final List<Factor> factors = new ArrayList<>();
+    private int totalCounter = 0;
+    private int largestFactor = 0;
+
+    /**
+     * Constructor of the inference context.
+     *
+     * @param network Network to query.
+     * @param verbose Whether the steps of the elimination are printed.
+     */
+    public VariableElimination(CompiledNetwork network, boolean verbose) {
+        this.network = network;
+        this.verbose = verbose;
+    }
     
     
-    public static void variableElimination(UserInterface ui, ArrayList<Variable> variables, String heuristic) {
-        int totalCounter = 0;
-
-        // Get the query and observed variables from the user interface
+    public static void variableElimination(UserInterface ui, CompiledNetwork network, String heuristic) {
+        VariableElimination context = new VariableElimination(network, true);
         Variable query = ui.getQueriedVariable();
-        ArrayList<ObsVar> observed = ui.getObservedVariables();
+        Factor resultFactor = context.query(query, ui.getObservedVariables(), heuristic);
+
+        // Display the final result
+        System.out.println("Probability distribution for " + query.getName() + ":");
+        for (Map.Entry<Condition, Double> entry : resultFactor.getValues().entrySet()) {
+            System.out.println(entry.getKey() + " => " + entry.getValue());
+        }
+        System.out.println("Total number of operations for factors: " + context.getTotalCounter());
+        System.out.println("Largest intermediate factor: " + context.getLargestFactor() + " entries");
+    }
+
+    /**
+     * Computes the posterior distribution of a variable given the observations. A
+     * context answers a single query.
+     *
+     * @param query    The queried variable.
+     * @param observed The observed variables.
+     * @param heuristic Name of the elimination heuristic.
+     * @return Normalized factor over the queried variable.
+     */
+    public Factor query(Variable query, List<ObsVar> observed, String heuristic) {
+        if (!factors.isEmpty() || totalCounter > 0) {
+            throw new IllegalStateException("An inference context answers a single query");
+        }
+
+        // Prune the network to the variables whose probabilities are needed for the query
+        ArrayList<Variable> relevant = new ArrayList<>(Relevance.requisiteVariables(network.getVariables(), query, observed));
+        log("Relevant variables: " + relevant.size() + " of " + network.getVariables().size());
 
-        // Initialize factors with the probabilities of each variable
+        // Initialize factors with the probabilities of each relevant variable
         
-        for (Variable variable : variables) {
-            Factor factor = new Factor(Arrays.asList(variable));
-            factor.setValues(variable.getProbabilities());
-            factors.add(factor);
+        for (Variable variable : relevant) {
+            factors.add(network.newFactor(variable));
         }
 
         // Reduce factors based on observed variables
@@ -31,43 +75,49 @@ public class VariableElimination {
                 if (factor.getVariables().contains(observedVar.getVar())) {
                     factor.reduce(observedVar.getVar(), observedVar.getValue());
                     totalCounter++;
-                    System.out.println("Counter inside 1st loop: " + totalCounter);
+                    log("Counter inside 1st loop: " + totalCounter);
                 }
             }
         }
 
         // Perform variable elimination
-        List<Variable> eliminationOrder = getEliminationOrder(variables, query, observed, heuristic, factors);
+        List<Variable> eliminationOrder = getEliminationOrder(relevant, query, observed, heuristic, factors);
         for (Variable variable : eliminationOrder) {
             List<Factor> relevantFactors = getRelevantFactors(variable, factors);
             Factor productFactor = multiplyFactors(relevantFactors);
+            largestFactor = Math.max(largestFactor, productFactor.getTable().length);
             productFactor.marginalize(variable);
 
             // Remove the old factors and add the new one
             factors.removeAll(relevantFactors);
             factors.add(productFactor);
             totalCounter++;
-            System.out.println("Counter inside 2nd loop: " + totalCounter);
+            log("Counter inside 2nd loop: " + totalCounter);
         }
 
         // Multiply the remaining factors to get the final result
+        // Pruning drops the probability of the evidence, so only the normalized result is meaningful
         Factor resultFactor = multiplyFactors(factors);
-        // Display the final result
-        System.out.println("Probability distribution for " + query.getName() + ":");
-        for (Map.Entry<Condition, Double> entry : resultFactor.getValues().entrySet()) {
-            System.out.println(entry.getKey() + " => " + entry.getValue());
-        }
+        resultFactor.normalize();
 
         for(Factor factor: factors) {
             totalCounter += factor.getCounter();
         }
-        System.out.println("Total number of operations for factors: " + totalCounter);
+        return resultFactor;
+    }
+
+    public int getTotalCounter() {
+        return totalCounter;
+    }
+
+    public int getLargestFactor() {
+        return largestFactor;
     }
 
    
 
-    private static List<Variable> getEliminationOrder(final ArrayList<Variable> variables, Variable query,
-            ArrayList<ObsVar> observed, String heuristic, final List<Factor> factors) {
+    private List<Variable> getEliminationOrder(final ArrayList<Variable> variables, Variable query,
+            List<ObsVar> observed, String heuristic, final List<Factor> factors) {
         // Implement your elimination order logic here
         // This method should return a list of variables in the order they should be
         // eliminated
@@ -85,23 +135,23 @@ public class VariableElimination {
 
         switch (heuristic) {
             case "least-incoming":
-                System.out.println("Before sorting (least-incoming): " + eliminationOrder);
+                log("Before sorting (least-incoming): " + eliminationOrder);
                 eliminationOrder.sort(new Comparator<Variable>() {
                     @Override
                     public int compare(final Variable v1, final Variable v2) {
                         int parentsV1 = v1.getNrOfParents();
                         int parentsV2 = v2.getNrOfParents();
-                        System.out.println(v1.getName() + " parents: " + parentsV1);
-                        System.out.println(v2.getName() + " parents: " + parentsV2);
+                        log(v1.getName() + " parents: " + parentsV1);
+                        log(v2.getName() + " parents: " + parentsV2);
                         return Integer.compare(parentsV1, parentsV2);
                     }
                 });
-                System.out.println("After sorting (least-incoming): " + eliminationOrder);
+                log("After sorting (least-incoming): " + eliminationOrder);
                 break;
 
             case "fewest-factors":
-                System.out.println("All factors: " + factors);
-                System.out.println("Before sorting (fewest-factors): " + eliminationOrder);
+                log("All factors: " + factors);
+                log("Before sorting (fewest-factors): " + eliminationOrder);
                 eliminationOrder.sort(new Comparator<Variable>() {
                     @Override
                     public int compare(final Variable v1, final Variable v2) {
@@ -109,16 +159,24 @@ public class VariableElimination {
                                 + v1.getNrOfChildren(eliminationOrder);
                         int factorsV2 = v2.getParents().size()
                                 + v2.getNrOfChildren(eliminationOrder);
-                        System.out.println(v1.getName() + " factors: " + factorsV1);
-                        System.out.println(v2.getName() + " factors: " + factorsV2);
+                        log(v1.getName() + " factors: " + factorsV1);
+                        log(v2.getName() + " factors: " + factorsV2);
                         return Integer.compare(factorsV1, factorsV2);
                     }
                 });
-                System.out.println("After sorting (fewest-factors): " + eliminationOrder);
+                log("After sorting (fewest-factors): " + eliminationOrder);
                 break;
+            case "min-degree":
+            case "min-fill":
+            case "weighted-min-fill":
+            case "min-weight":
+                InteractionGraph graph = new InteractionGraph(factors);
+                List<Variable> ordered = graph.eliminationOrder(eliminationOrder, heuristic);
+                log("Elimination order (" + heuristic + "): " + ordered);
+                return ordered;
             // Add cases for other heuristics as needed
             default:
-                System.out.println("Default sorting (no heurstic): " + eliminationOrder);
+                log("Default sorting (no heurstic): " + eliminationOrder);
                 // For empty heuristic or unknown, keep the default order
                 break;
         }
@@ -140,25 +198,15 @@ public class VariableElimination {
         return relevantFactors;
     }
 
-    private static Factor multiplyFactors(List<Factor> factors) {
-        // Implement logic to multiply a list of factors
-        // This method should return a single factor resulting from the multiplication
-        // For now, a simple multiplication is performed by combining their values
-        List<Variable> allVariables = null;  // Declare the list outside the loop
-
-            for (Factor factor : factors) {
-                if(allVariables == null) {
-                    allVariables = new ArrayList<>();
-                }
-                allVariables.addAll(factor.getVariables());
-            }
-            Factor resultFactor = new Factor(allVariables);
+    private void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
+    }
 
-            // Multiply values for all factors
-            for (Factor factor : factors) {
-                resultFactor.product(factor.getValues());
-            }
-            return resultFactor;
+    private static Factor multiplyFactors(List<Factor> factors) {
+        // Join all factors over the union of their variables in a single pass.
+        return Factor.product(factors);
     }
 
     
@@ -12,6 +12,7 @@ import NRow.Heuristics.SimpleHeuristic;
 import NRow.Players.HumanPlayer;
 import NRow.Players.MinMaxPlayer;
 import NRow.Players.AlphaBetaPlayer;
+import NRow.Players.MCTSPlayer;
 import NRow.Players.PlayerController;
 
 public class App {
@@ -45,6 +46,7 @@ public class App {
         PlayerController minMaxPlayer2 = new MinMaxPlayer(2, n, 4, customHeuristic2); // Adjust the depth as needed
         PlayerController alphaBetaPlayer = new AlphaBetaPlayer(1, n, 4, customHeuristic1 ); // Adjust the depth as needed
         PlayerController alphaBetaPlayer2 = new AlphaBetaPlayer(2, n, 3, customHeuristic1 ); // Adjust the depth as needed
+        PlayerController mctsPlayer = new MCTSPlayer(2, n, 20000, customHeuristic1); // Adjust the simulations as needed
 
         PlayerController[] players = { minMaxPlayer, alphaBetaPlayer2 };
 
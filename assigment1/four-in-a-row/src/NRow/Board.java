@@ -7,12 +7,31 @@
 
 package NRow;
 
-import java.util.Arrays;
-
+/**
+ * The board is stored as one bitboard per player. Every column takes height + 1 bits,
+ * counted from the bottom, and the extra bit on top of a column always stays empty so
+ * lines can not run from one column into the next. Cell (x, y) of the board, with
+ * y = 0 the top row, is bit x * (height + 1) + (height - 1 - y).
+ * Boards that fit in 64 bits use a single long, larger boards use an array of longs.
+ *
+ * A board that is not changed any more can be read by several threads at once, also with
+ * winning() as long as they all ask for the same N, since it only caches the lines of that N
+ * and the last position without a line. Changing a board with play or undo needs the board
+ * to be used by one thread only.
+ */
 public class Board {
   public final int width;
   public final int height;
-  private int[][] boardState; // 2D integer array containing 0's, or else playerId's in case a spot has been claimed
+  private final int columnBits; // height + 1, the bits used per column
+  private final int[] shifts; // bit distance between neighbours: vertical, horizontal, and both diagonals
+  private long[][] bits; // bits[playerId - 1] is the bitboard of that player
+  private int[] heights; // number of pieces in every column
+  private int pieces;
+  private int[] moves; // columns played on this board, in order, for undo
+  private int moveCount;
+  private long hash; // Zobrist key of the position, kept up to date by play and undo
+  private WinningLines lines; // the lines of the last N the win check was asked for
+  private int checkedMoves = -1; // moves on the stack when the board last had no line of N, or -1
 
   /**
    * Constructor for creating a new empty board
@@ -22,7 +41,12 @@ public class Board {
   public Board(int width, int height) {
     this.width = width;
     this.height = height;
-    this.boardState = new int[width][height];
+    this.columnBits = height + 1;
+    this.shifts = new int[] { 1, columnBits, columnBits + 1, columnBits - 1 };
+    int words = (width * columnBits + 63) / 64;
+    this.bits = new long[2][words];
+    this.heights = new int[width];
+    this.moves = new int[width * height];
   }
 
   /**
@@ -32,16 +56,34 @@ public class Board {
   public Board(Board other) {
     this.width = other.width;
     this.height = other.height;
-    this.boardState = other.getBoardState();
+    this.columnBits = other.columnBits;
+    this.shifts = other.shifts;
+    this.bits = new long[][] { other.bits[0].clone(), other.bits[1].clone() };
+    this.heights = other.heights.clone();
+    this.pieces = other.pieces;
+    this.moves = other.moves.clone();
+    this.moveCount = other.moveCount;
+    this.hash = other.hash;
+    this.lines = other.lines;
+    this.checkedMoves = other.checkedMoves;
   }
 
   /**
    * Constructor for cloning a board based on a boardstate
-   */ 
+   */
   public Board(int[][] state) {
-    this.width = state.length;
-    this.height = state[0].length;
-    this.boardState = state;
+    this(state.length, state[0].length);
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        if (state[x][y] != 0) {
+          int row = height - 1 - y;
+          set(bits[state[x][y] - 1], x * columnBits + row);
+          hash ^= zobrist(state[x][y], x * columnBits + row);
+          heights[x] = Math.max(heights[x], row + 1);
+          pieces++;
+        }
+      }
+    }
   }
 
   /**
@@ -50,36 +92,90 @@ public class Board {
    * @return The value of a certain coordinate in the board
    */
   public int getValue(int x, int y) {
-    return boardState[x][y];
+    int bit = x * columnBits + (height - 1 - y);
+    if (get(bits[0], bit)) {
+      return 1;
+    } else if (get(bits[1], bit)) {
+      return 2;
+    }
+    return 0;
   }
 
   /**
    * @return Cloned int array of the board state
    */
   public int[][] getBoardState() {
-    return Arrays.stream(boardState).map(int[]::clone).toArray(int[][]::new);
+    int[][] state = new int[width][height];
+    for (int x = 0; x < width; x++) {
+      for (int y = height - heights[x]; y < height; y++) {
+        state[x][y] = getValue(x, y);
+      }
+    }
+    return state;
   }
 
   /**
-   * Let player playerId make a move in column x 
+   * Let player playerId make a move in column x
    * @param x
    * @param playerId
    * @return true if succeeded
    */
   public boolean play(int x, int playerId) {
-    if (x < 0 || x >= width) {
-      // Invalid column index
+    if (!isValid(x)) {
       return false;
+    }
+    int bit = x * columnBits + heights[x];
+    set(bits[playerId - 1], bit);
+    hash ^= zobrist(playerId, bit);
+    heights[x]++;
+    pieces++;
+    moves[moveCount++] = x;
+    return true;
   }
 
-  for (int i = this.boardState[0].length - 1; i >= 0; i--) {
-      if (this.boardState[x][i] == 0) {
-          this.boardState[x][i] = playerId;
-          return true;
-      }
+  /**
+   * Takes back the last move played on this board, so a search can walk the game tree
+   * on one board instead of creating a new board for every child.
+   * Moves from the board state given to the constructor can not be taken back.
+   * @return the column of the move that was taken back, or -1 if there is none
+   */
+  public int undo() {
+    if (moveCount == 0) {
+      return -1;
+    }
+    int x = moves[--moveCount];
+    checkedMoves = Math.min(checkedMoves, moveCount); // taking a piece away can not make a line
+    pieces--;
+    heights[x]--;
+    int bit = x * columnBits + heights[x];
+    hash ^= zobrist(get(bits[0], bit) ? 1 : 2, bit);
+    clear(bits[0], bit);
+    clear(bits[1], bit);
+    return x;
+  }
+
+  /**
+   * @return the Zobrist key of the position: the XOR of a random number for every piece,
+   *         updated on every play and undo
+   */
+  public long getHash() {
+    return hash;
+  }
+
+  /**
+   * @return the number of pieces on the board
+   */
+  public int getPieceCount() {
+    return pieces;
+  }
+
+  /**
+   * @param x column
+   * @return the number of pieces in column x
+   */
+  public int getHeight(int x) {
+    return heights[x];
   }
-  return false;
-}
 
   /**
    * Returns if a move is valid
@@ -87,7 +183,7 @@ public class Board {
    * @return true if spot is not taken yet
    */
   public boolean isValid(int x) {
-    return x >= 0 && x < width && getBoardState()[x][0] == 0;
+    return x >= 0 && x < width && heights[x] < height;
   }
 
   /**
@@ -97,14 +193,148 @@ public class Board {
    * @return a *new* Board object with the resulting state
    */
   public Board getNewBoard(int x, int playerId) {
-    int[][] newBoardState = getBoardState();
-    for(int i = newBoardState[0].length-1; i >= 0 ; i--) {
-      if(newBoardState[x][i] == 0) {
-        newBoardState[x][i] = playerId;
-        return new Board(newBoardState);
+    Board newBoard = new Board(this);
+    newBoard.play(x, playerId);
+    return newBoard;
+  }
+
+  /**
+   * Determines whether a player has won, and if so, which one.
+   * Same result as Game.winning. If the board had no line before the last move, only the lines
+   * through the last cell are checked, otherwise the whole board is checked with shift-and-AND on the bitboards.
+   * @param gameN N in a row required to win
+   * @return 1 or 2 if the respective player won, -1 on a draw, or 0 if the game is not over
+   */
+  public int winning(int gameN) {
+    if (lines == null || lines.gameN != gameN) {
+      lines = WinningLines.get(gameN, width, height);
+      checkedMoves = -1;
+    }
+
+    if (checkedMoves >= 0 && checkedMoves == moveCount - 1) {
+      int x = moves[moveCount - 1];
+      int bit = x * columnBits + heights[x] - 1;
+      int player = get(bits[0], bit) ? 1 : 2;
+      for (int line : lines.getLinesThrough(x * height + height - heights[x])) {
+        if (contains(bits[player - 1], lines.getMask(line))) {
+          return player;
+        }
+      }
+      checkedMoves = moveCount;
+    } else if (checkedMoves != moveCount) {
+      for (int player = 1; player <= 2; player++) {
+        if (hasLine(bits[player - 1], gameN)) {
+          return player;
+        }
+      }
+      checkedMoves = moveCount;
+    }
+    return pieces == width * height ? -1 : 0;
+  }
+
+  /**
+   * @return true if the bitboard has all bits of the mask
+   */
+  private static boolean contains(long[] board, long[] mask) {
+    for (int i = 0; i < board.length; i++) {
+      if ((board[i] & mask[i]) != mask[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the bitboard contains gameN in a row in any direction
+   */
+  private boolean hasLine(long[] board, int gameN) {
+    if (board.length == 1) {
+      long b = board[0];
+      for (int shift : shifts) {
+        // m keeps the cells that start a run of length cells
+        long m = b;
+        int length = 1;
+        while (length * 2 <= gameN) {
+          m &= shifted(m, length * shift);
+          length *= 2;
+        }
+        if (length < gameN) {
+          m &= shifted(m, (gameN - length) * shift);
+        }
+        if (m != 0) {
+          return true;
+        }
       }
+      return false;
     }
-    return new Board(newBoardState);
+
+    long[] m = new long[board.length]; // local, so threads that share a board do not share it
+    for (int shift : shifts) {
+      System.arraycopy(board, 0, m, 0, board.length);
+      int length = 1;
+      while (length * 2 <= gameN) {
+        andShifted(m, length * shift);
+        length *= 2;
+      }
+      if (length < gameN) {
+        andShifted(m, (gameN - length) * shift);
+      }
+      for (long word : m) {
+        if (word != 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * m &= m >>> shift, for a bitboard spread over several longs. Goes up through the
+   * words, so every word is read before it is changed.
+   */
+  private static void andShifted(long[] m, int shift) {
+    int words = shift >>> 6;
+    int offset = shift & 63;
+    for (int i = 0; i < m.length; i++) {
+      long shifted = 0;
+      if (i + words < m.length) {
+        shifted = m[i + words] >>> offset;
+        if (offset != 0 && i + words + 1 < m.length) {
+          shifted |= m[i + words + 1] << (64 - offset);
+        }
+      }
+      m[i] &= shifted;
+    }
+  }
+
+  /**
+   * m >>> shift, also for shifts of 64 and more, which Java would take modulo 64.
+   */
+  private static long shifted(long m, int shift) {
+    return shift < 64 ? m >>> shift : 0;
+  }
+
+  /**
+   * The random number of a piece of playerId on a bit of the board, made with the SplitMix64
+   * mixing function so no table is needed for every board size.
+   */
+  private static long zobrist(int playerId, int bit) {
+    long z = ((long) bit << 1 | (playerId - 1)) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static boolean get(long[] board, int bit) {
+    return (board[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  private static void set(long[] board, int bit) {
+    board[bit >>> 6] |= 1L << bit;
+  }
+
+  private static void clear(long[] board, int bit) {
+    board[bit >>> 6] &= ~(1L << bit);
   }
 
   /**
@@ -115,22 +345,22 @@ public class Board {
     String divider = " ";
     String divider2 = " ";
     String numberRow = "|";
-    
-    for (int i = 0; i < boardState.length; i++) {
+
+    for (int i = 0; i < width; i++) {
       divider += "--- ";
       divider2 += "=== ";
       numberRow += " " + (i + 1) + " |";
     }
 
     String output = "";
-    
-    for (int i = 0; i < boardState[0].length; i++) {
+
+    for (int i = 0; i < height; i++) {
       output += "\n" + divider + "\n";
-      for (int j = 0; j < boardState.length; j++) {
+      for (int j = 0; j < width; j++) {
         String node = " ";
-        if (boardState[j][i] == 1) {
+        if (getValue(j, i) == 1) {
           node = "X";
-        } else if (boardState[j][i] == 2) {
+        } else if (getValue(j, i) == 2) {
           node = "O";
         }
         output += "| " + node + " ";
@@ -138,7 +368,7 @@ public class Board {
       output += "|";
     }
     output += "\n" + divider2 + "\n" + numberRow + "\n";
-    
+
     return output;
   }
 }
@@ -62,6 +62,11 @@ public class Game {
     }
     System.out.println("Player " + players[0] + " evaluated a boardstate " + players[0].getEvalCount() + " times.");
     System.out.println("Player " + players[1] + " evaluated a boardstate " + players[1].getEvalCount() + " times.");
+    for (PlayerController player : players) {
+      if (player.getNodeCount() > 0) {
+        System.out.println("Player " + player + " " + player.getSearchStatistics() + ".");
+      }
+    }
     return winner;
   }
 
@@ -70,7 +75,7 @@ public class Game {
    * @return true if game is over
    */
   public boolean isOver() {
-    winner = winning(gameBoard.getBoardState(), this.gameN);
+    winner = gameBoard.winning(this.gameN);
     return winner != 0;
   }
 
@@ -81,77 +86,20 @@ public class Game {
    * @return 1 or 2 if the respective player won, or 0 if neither player has won
    */
   public static int winning(int[][] board, int gameN) {
-    int player;
+    WinningLines lines = WinningLines.get(gameN, board.length, board[0].length);
+    int height = board[0].length;
 
-    // Vertical Check
-    for (int i = 0; i < board.length; i++) {
-      for (int j = 0; j < (board[i].length - (gameN - 1)); j++) {
-        if (board[i][j] != 0) {
-          player = board[i][j];
-          for (int x = 1; x < gameN; x++) {
-            if (board[i][j + x] != player) {
-              player = 0;
-              break;
-            }
-          }
-          if (player != 0) {
-            return player;
-          }
-        }
-      }
-    }
-    
-    // Horizontal Check
-    for (int i = 0; i < (board.length - (gameN - 1)); i++) {
-      for (int j = 0; j < board[i].length; j++) {
-        if (board[i][j] != 0) {
-          player = board[i][j];
-          for (int x = 1; x < gameN; x++) {
-            if (board[i + x][j] != player) {
-              player = 0;
-              break;
-            }
-          }
-          if (player != 0) {
-            return player;
-          }
+    // Every line of gameN cells: vertical, horizontal, and both diagonals
+    for (int line = 0; line < lines.getLineCount(); line++) {
+      int[] cells = lines.getLine(line);
+      int player = board[cells[0] / height][cells[0] % height];
+      for (int i = 1; i < cells.length && player != 0; i++) {
+        if (board[cells[i] / height][cells[i] % height] != player) {
+          player = 0;
         }
       }
-    }
-    
-    // Ascending Diagonal Check
-    for (int i = 0; i < (board.length - (gameN - 1)); i++) {
-      for (int j = board[i].length - 1; j >= gameN - 1; j--) {
-        if (board[i][j] != 0) {
-          player = board[i][j];
-          for (int x = 1; x < gameN; x++) {
-            if (board[i + x][j - x] != player) {
-              player = 0;
-              break;
-            }
-          }
-          if (player != 0) {
-            return player;
-          }
-        }
-      }
-    }
-    
-    // Descending Diagonal Check
-    for (int i = 0; i < (board.length - (gameN - 1)); i++) {
-      for (int j = 0; j < (board[i].length - (gameN - 1)); j++) {
-        if (board[i][j] != 0) {
-          player = board[i][j];
-          for (int x = 1; x < gameN; x++) {
-            if (board[i + x][j + x] != player) {
-              player = 0;
-              break;
-            }
-          }
-          if (player != 0) {
-            return player;
-          }
-        }
+      if (player != 0) {
+        return player;
       }
     }
 
@@ -0,0 +1,221 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Heuristics;
+
+import java.util.Arrays;
+
+import NRow.Board;
+import NRow.WinningLines;
+
+/**
+ * The CustomIncrementalEvaluator class gives the same values as the CustomHeuristic, without scanning the whole board.
+ *
+ * For every window of N positions in a row it counts the pieces of both players, so a changed position only
+ * updates the windows through it and a win is known from the number of full windows.
+ * The utility of every position is kept in a tree that holds the largest utility of each player at its root.
+ * The utility of a position only depends on the rows through it, up to the first position that is not a piece of the
+ * player, so a changed position only makes the utilities stale of the positions that can look through to it.
+ *
+ * Playing and undoing a move only remembers the changed position. The window counts and utilities are brought
+ * up to date when the board is evaluated, so the many moves a search plays and takes back between two
+ * evaluations cost almost nothing, and a move that was taken back again costs nothing at all.
+ * The utilities are only computed again when nobody has won, as a won board gets its value from the winner alone.
+ */
+public class CustomIncrementalEvaluator extends IncrementalEvaluator {
+    private final int gameN;
+    private final int width;
+    private final int height;
+    private final int[][] boardState; // the same layout as Board.getBoardState
+    private final int[] heights;
+    private int pieces;
+
+    private final WinningLines lines; // the windows, indexed like the positions by x * height + y
+    private final int[][] windowCounts; // pieces of player 1 and 2 in every window
+    private final int[] fullWindows = new int[2]; // windows that are full of pieces of player 1 and 2
+    private final int[] counted; // the piece on every position in the window counts
+
+    private final int leaves; // the first leaf of the utility trees
+    private final int[][] utilities; // per player a tree where every node holds the largest utility below it
+    private final boolean[] stale;
+    private final int[] staleCells;
+    private int staleCount;
+    private final boolean[] changed;
+    private final int[] changedCells;
+    private int changedCount;
+
+    /**
+     * Constructs an evaluator for the current state of a board.
+     *
+     * @param board The board to follow.
+     * @param gameN The value of N for the game.
+     */
+    public CustomIncrementalEvaluator(Board board, int gameN) {
+        this.gameN = gameN;
+        this.width = board.width;
+        this.height = board.height;
+        this.boardState = board.getBoardState();
+        this.heights = new int[width];
+        int cells = width * height;
+
+        lines = WinningLines.get(gameN, width, height);
+        windowCounts = new int[2][lines.getLineCount()];
+        counted = new int[cells];
+
+        int size = 1;
+        while (size < cells) {
+            size <<= 1;
+        }
+        leaves = size;
+        utilities = new int[2][2 * size];
+        stale = new boolean[cells];
+        staleCells = new int[cells];
+        changed = new boolean[cells];
+        changedCells = new int[cells];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = height - 1; y >= 0 && boardState[x][y] != 0; y--) {
+                heights[x]++;
+                pieces++;
+                counted[x * height + y] = boardState[x][y];
+                countWindows(x * height + y, boardState[x][y], 1);
+            }
+        }
+        for (int p = 0; p < 2; p++) {
+            Arrays.fill(utilities[p], Integer.MIN_VALUE);
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            updateUtilities(cell);
+        }
+    }
+
+    @Override
+    public void play(int x, int playerId) {
+        int y = height - 1 - heights[x]++;
+        boardState[x][y] = playerId;
+        pieces++;
+        markChanged(x * height + y);
+    }
+
+    @Override
+    public void undo(int x) {
+        int y = height - 1 - --heights[x];
+        boardState[x][y] = 0;
+        pieces--;
+        markChanged(x * height + y);
+    }
+
+    private void markChanged(int cell) {
+        if (!changed[cell]) {
+            changed[cell] = true;
+            changedCells[changedCount++] = cell;
+        }
+    }
+
+    /**
+     * Adds or removes a piece in the counts of the windows through its position.
+     */
+    private void countWindows(int cell, int playerId, int change) {
+        int[] counts = windowCounts[playerId - 1];
+        for (int window : lines.getLinesThrough(cell)) {
+            if (counts[window] == gameN) {
+                fullWindows[playerId - 1]--;
+            }
+            counts[window] += change;
+            if (counts[window] == gameN) {
+                fullWindows[playerId - 1]++;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the board like {@link CustomHeuristic#evaluate}.
+     *
+     * @param player The player for whom the utility is calculated.
+     * @return The utility value of the game state.
+     */
+    @Override
+    protected int evaluate(int player) {
+        countChanges();
+        int winning = fullWindows[0] > 0 ? 1 : fullWindows[1] > 0 ? 2 : pieces == width * height ? -1 : 0;
+        if (winning == player) {
+            return Integer.MAX_VALUE;
+        } else if (winning != 0) {
+            return Integer.MIN_VALUE;
+        }
+
+        for (int i = 0; i < staleCount; i++) {
+            stale[staleCells[i]] = false;
+            updateUtilities(staleCells[i]);
+        }
+        staleCount = 0;
+        return Math.max(0, utilities[player - 1][1]);
+    }
+
+    /**
+     * Brings the window counts up to date with the positions that changed since the last evaluation,
+     * and marks the utilities of the positions that can look through to such a position as stale.
+     */
+    private void countChanges() {
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changedCells[i];
+            changed[cell] = false;
+            int x = cell / height;
+            int y = cell % height;
+            if (boardState[x][y] == counted[cell]) {
+                continue; // the moves were taken back again
+            }
+            if (counted[cell] != 0) {
+                countWindows(cell, counted[cell], -1);
+            }
+            counted[cell] = boardState[x][y];
+            if (counted[cell] != 0) {
+                countWindows(cell, counted[cell], 1);
+            }
+            markStale(cell);
+            for (int[] dir : CustomHeuristic.DIRECTIONS) {
+                for (int side = -1; side <= 1; side += 2) {
+                    // A position only looks through a row of pieces of one player, and stops at the first other position
+                    int piece = -1;
+                    int newX = x + side * dir[0];
+                    int newY = y + side * dir[1];
+                    while (newX >= 0 && newX < width && newY >= 0 && newY < height) {
+                        markStale(newX * height + newY);
+                        if (boardState[newX][newY] == 0 || piece != -1 && boardState[newX][newY] != piece) {
+                            break;
+                        }
+                        piece = boardState[newX][newY];
+                        newX += side * dir[0];
+                        newY += side * dir[1];
+                    }
+                }
+            }
+        }
+        changedCount = 0;
+    }
+
+    private void markStale(int cell) {
+        if (!stale[cell]) {
+            stale[cell] = true;
+            staleCells[staleCount++] = cell;
+        }
+    }
+
+    /**
+     * Computes the utility of a position for both players and updates the trees above it.
+     */
+    private void updateUtilities(int cell) {
+        for (int p = 0; p < 2; p++) {
+            int[] tree = utilities[p];
+            int node = leaves + cell;
+            tree[node] = CustomHeuristic.cellUtility(p + 1, cell / height, cell % height, boardState, gameN);
+            for (node >>= 1; node > 0; node >>= 1) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+    }
+}
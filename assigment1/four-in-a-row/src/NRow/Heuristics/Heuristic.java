@@ -7,6 +7,8 @@
 
 package NRow.Heuristics;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import NRow.Board;
 
 /**
@@ -14,7 +16,7 @@ import NRow.Board;
  */
 public abstract class Heuristic {
     protected int gameN;
-    protected int evalCount = 0;
+    protected LongAdder evalCount = new LongAdder(); // counts evaluations of all threads of a parallel search
 
     public Heuristic(int gameN) {
         this.gameN = gameN;
@@ -24,7 +26,7 @@ public abstract class Heuristic {
      * @return The amount of times a boardstate was evaluated
      */
     public int getEvalCount() {
-        return evalCount;
+        return evalCount.intValue();
     }
 
     /**
@@ -65,7 +67,7 @@ public abstract class Heuristic {
      */
     protected int evaluateAction(int player, int action, Board board) {
         if (board.isValid(action)) {
-            evalCount++;
+            evalCount.increment();
             int value = evaluateBoard(player, board.getNewBoard(action, player), gameN);
             return value;
         } else return Integer.MIN_VALUE;
@@ -78,10 +80,30 @@ public abstract class Heuristic {
      * @return the utility
      */
     public int evaluateBoard(int player, Board board, int gameN) {
-        evalCount++;
+        evalCount.increment();
         return evaluate(player, board, gameN);
     }
 
+    /**
+     * Helper function to assign a utility to the board an incremental evaluator follows
+     * @param player the player for which to compute the heuristic values
+     * @param evaluator the evaluator of the board, created by this heuristic
+     * @return the utility
+     */
+    public int evaluateBoard(int player, IncrementalEvaluator evaluator) {
+        evalCount.increment();
+        return evaluator.evaluate(player);
+    }
+
+    /**
+     * Creates an evaluator that follows a board move by move and gives the same utilities as this heuristic
+     * @param board the board to follow
+     * @return the evaluator, or null if this heuristic can only evaluate whole boards
+     */
+    public IncrementalEvaluator createIncrementalEvaluator(Board board, int gameN) {
+        return null;
+    }
+
     public String toString() {
         return this.name();
     }
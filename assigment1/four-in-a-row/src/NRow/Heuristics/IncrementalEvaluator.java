@@ -0,0 +1,36 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Heuristics;
+
+/**
+ * Abstract class defining an evaluator that follows a board move by move.
+ * A search plays and undoes every move on the evaluator as well as on its board,
+ * so the evaluator only has to update what a move changes instead of evaluating the whole board.
+ */
+public abstract class IncrementalEvaluator {
+
+    /**
+     * Drops a piece in a column, like {@link NRow.Board#play(int, int)}.
+     * @param x column to play in
+     * @param playerId id of the player whose piece it is
+     */
+    public abstract void play(int x, int playerId);
+
+    /**
+     * Takes the top piece out of a column again, like {@link NRow.Board#undo()}.
+     * @param x column of the last move
+     */
+    public abstract void undo(int x);
+
+    /**
+     * Implement this method in the evaluator classes
+     * @param player the player for which to compute the heuristic value
+     * @return heuristic value for the current board state, the same as the heuristic would give
+     */
+    protected abstract int evaluate(int player);
+}
@@ -7,15 +7,36 @@
 
 package NRow.Players;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import NRow.TreeNode;
 import NRow.Board;
 import NRow.Heuristics.Heuristic;
-import NRow.Game;
+import NRow.Heuristics.IncrementalEvaluator;
 
 public class AlphaBetaPlayer extends PlayerController {
+    // Mixed into the Zobrist key of min nodes and of positions searched for player 2
+    private static final long MIN_NODE_KEY = 0x2545F4914F6CDD1DL;
+    private static final long PLAYER_2_KEY = 0x6A09E667F3BCC909L;
+
     private int depth;
+    private boolean buildTree;
     private TreeNode rootNode;
     private int player2Id;
+    private TranspositionTable table;
+    private long tableProbes = 0;
+    private long tableHits = 0;
+    private boolean moveOrdering;
+    private int threads = 1;
+    private Searcher[] searchers = { new Searcher() }; // the main searcher and the helpers
+    private ExecutorService pool;
+    private long deadline;
+    private volatile boolean stop; // tells the helpers the main searcher is done
 
     /**
      * Constructs a new AlphaBetaPlayer with the specified parameters.
@@ -25,8 +46,25 @@ public class AlphaBetaPlayer extends PlayerController {
      * @param heuristic The heuristic function for evaluating game states.
      */
     public AlphaBetaPlayer(int playerId, int gameN, int depth, Heuristic heuristic) {
+        this(playerId, gameN, depth, heuristic, false);
+    }
+
+    /**
+     * Constructs a new AlphaBetaPlayer with the specified parameters.
+     * @param playerId The ID of the player.
+     * @param gameN The value of N for the game.
+     * @param depth The depth for the Alpha-Beta search.
+     * @param heuristic The heuristic function for evaluating game states.
+     * @param buildTree Whether to build the whole game tree up to depth before searching it.
+     *                  Otherwise the children of a node are only created when the search gets to them,
+     *                  by playing and taking back moves on one board, so pruned subtrees cost nothing
+     *                  and memory only grows with the depth. Both modes choose the same moves.
+     *                  A time limit and a transposition table are only used without the tree.
+     */
+    public AlphaBetaPlayer(int playerId, int gameN, int depth, Heuristic heuristic, boolean buildTree) {
         super(playerId, gameN, heuristic);
         this.depth = depth;
+        this.buildTree = buildTree;
         this.rootNode = new TreeNode(null, -1);
         this.player2Id = (playerId == 1) ? 2 : 1; // Set player2ID based on playerId
     }
@@ -39,26 +77,72 @@ public class AlphaBetaPlayer extends PlayerController {
     @Override
     public int makeMove(Board board) {
         int[] availableMoves = getAvailableMoves(board);
-        rootNode = new TreeNode(board, -1);
-        buildTree(rootNode, depth, playerId);
+        if (buildTree) {
+            rootNode = new TreeNode(board, -1);
+            buildTree(rootNode, depth, playerId);
+        }
 
         if (availableMoves.length == 0) {
             System.out.println("No available moves left.");
             return -1;
         }
 
+        long start = System.nanoTime();
         int bestMove = -1;
-        int alpha = Integer.MIN_VALUE;
-        int beta = Integer.MAX_VALUE;
 
-        for (TreeNode child : rootNode.getChildren()) {
-            int value = minValue(child, depth, alpha, beta, playerId, player2Id);
+        if (buildTree) {
+            int alpha = Integer.MIN_VALUE;
+            int beta = Integer.MAX_VALUE;
+            for (TreeNode child : rootNode.getChildren()) {
+                int value = minValue(child, depth - 1, alpha, beta, playerId, player2Id);
 
-            if (value > alpha) {
-                alpha = value; // Update alpha
-                bestMove = child.getMove();
+                if (value > alpha) {
+                    alpha = value; // Update alpha
+                    bestMove = child.getMove();
+                }
+            }
+            depthReached = depth;
+            moveValue = alpha;
+        } else {
+            if (threads > 1 && table == null) {
+                table = new TranspositionTable(20); // the helpers only help the main searcher through a shared table
+            }
+            if (table != null) {
+                table.newSearch();
             }
+            deadline = start + timeLimit * 1000000;
+            stop = false;
+            for (Searcher searcher : searchers) {
+                searcher.prepare(board);
+            }
+
+            List<Future<?>> helpers = new ArrayList<>();
+            for (int i = 1; i < searchers.length; i++) {
+                final int helper = i;
+                helpers.add(pool.submit(() -> searchers[helper].search(helper)));
+            }
+            bestMove = searchers[0].search(0);
+            stop = true;
+            for (Future<?> future : helpers) {
+                try {
+                    future.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException("A helper search failed", e);
+                }
+            }
+
+            for (Searcher searcher : searchers) {
+                nodeCount += searcher.nodes;
+                tableProbes += searcher.probes;
+                tableHits += searcher.hits;
+                searcher.nodes = 0;
+                searcher.probes = 0;
+                searcher.hits = 0;
+            }
+            depthReached = searchers[0].completedDepth;
+            moveValue = searchers[0].bestValue;
         }
+        timeUsed = (System.nanoTime() - start) / 1000000;
 
         int validMove = findValidMove(board, bestMove);
         if (validMove != -1) {
@@ -68,6 +152,73 @@ public class AlphaBetaPlayer extends PlayerController {
         }
     }
 
+    /**
+     * Lets the search store its results in a transposition table, which is kept for all following moves.
+     * Only used when the tree is not built first. Parallel searchers for the same player can share a table.
+     * @param table The table to use, or null to search without one.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Lets the search run on several threads (Lazy SMP): the main searcher searches as with one thread, and
+     * helper searchers search the same position at the same time. They only share the transposition table,
+     * which fills up faster, so the main searcher can use their results. With more than one thread a table is
+     * created if the player does not have one yet. With one thread the search is deterministic. Without a time
+     * limit the helpers search no deeper than the main searcher, so the move and its value do not depend on the
+     * number of threads.
+     * Only used when the tree is not built first.
+     * @param threads The number of threads to search with.
+     */
+    public void setThreads(int threads) {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        this.threads = Math.max(1, threads);
+        searchers = new Searcher[this.threads];
+        for (int i = 0; i < searchers.length; i++) {
+            searchers[i] = new Searcher();
+        }
+        if (this.threads > 1) {
+            pool = Executors.newFixedThreadPool(this.threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "AlphaBetaPlayer helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Lets the search order the moves of every node to get cutoffs sooner: first the move from the
+     * transposition table, then the killer moves of the ply, then the other moves by their history
+     * score, and moves closer to the center first. Only used when the tree is not built first.
+     * @param moveOrdering Whether to order the moves, otherwise they are searched from left to right.
+     */
+    public void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
+
+    /**
+     * @return The fraction of transposition table lookups that found the position
+     */
+    public double getTableHitRate() {
+        return (tableProbes == 0) ? 0 : (double) tableHits / tableProbes;
+    }
+
+    /**
+     * @return The number of nodes searched, and the hit rate of the transposition table if there is one
+     */
+    @Override
+    public String getSearchStatistics() {
+        String statistics = super.getSearchStatistics();
+        if (table != null) {
+            statistics += String.format(", with a transposition table hit rate of %.1f%%", 100 * getTableHitRate());
+        }
+        return statistics;
+    }
+
     /**
      * Finds a valid move on the board, considering wrap-around.
      * @param board The current game board.
@@ -102,8 +253,9 @@ public class AlphaBetaPlayer extends PlayerController {
      * @return The minimum value for the given node.
      */
     private int minValue(TreeNode node, int depth, int alpha, int beta, int currentPlayer, int opponent) {
-        if (depth == 0 || Game.winning(node.getBoard().getBoardState(), gameN) != 0) {
-            return evaluatePosition(node.getBoard(), opponent);
+        nodeCount++;
+        if (depth == 0 || node.getBoard().winning(gameN) != 0 || node.getChildren().isEmpty()) {
+            return evaluatePosition(node.getBoard(), currentPlayer); // every leaf is valued for the searching player
         }
 
         for (TreeNode child : node.getChildren()) {
@@ -129,7 +281,8 @@ public class AlphaBetaPlayer extends PlayerController {
      * @return The maximum value for the given node.
      */
     private int maxValue(TreeNode node, int depth, int alpha, int beta, int currentPlayer, int opponent) {
-        if (depth == 0 || Game.winning(node.getBoard().getBoardState(), gameN) != 0) {
+        nodeCount++;
+        if (depth == 0 || node.getBoard().winning(gameN) != 0 || node.getChildren().isEmpty()) {
             return evaluatePosition(node.getBoard(), currentPlayer);
         }
 
@@ -145,6 +298,14 @@ public class AlphaBetaPlayer extends PlayerController {
         return alpha;
     }
 
+    /**
+     * @return The key of a node in the transposition table: the Zobrist key of the board, with the
+     *         type of node and the searching player mixed in, as the value depends on both.
+     */
+    private long nodeKey(Board board, boolean minNode) {
+        return board.getHash() ^ (minNode ? MIN_NODE_KEY : 0) ^ (playerId == 2 ? PLAYER_2_KEY : 0);
+    }
+
     /**
      * Builds the game tree using recursion.
      * @param node The current node in the game tree.
@@ -152,7 +313,7 @@ public class AlphaBetaPlayer extends PlayerController {
      * @param currentPlayer The ID of the current player.
      */
     private void buildTree(TreeNode node, int depth, int currentPlayer) {
-        if (depth == 0 || Game.winning(node.getBoard().getBoardState(), gameN) != 0) {
+        if (depth == 0 || node.getBoard().winning(gameN) != 0) {
             return;
         }
 
@@ -196,6 +357,405 @@ public class AlphaBetaPlayer extends PlayerController {
         System.arraycopy(availableMoves, 0, result, 0, moveCount);
         return result;
     }
-}
 
+    /**
+     * The state of one search without a prebuilt tree: its own board to play and take back moves on, its move
+     * buffers, killer moves and history, and its counters. The transposition table is shared, so parallel
+     * searchers profit from each other's results.
+     */
+    private class Searcher {
+        private Board board;
+        private IncrementalEvaluator evaluator; // follows the board if the heuristic has one
+        private int rootPieces;
+        private int[][] moveBuffers; // moves per ply, in the order they are searched
+        private long[][] scoreBuffers;
+        private int[][] killers; // two moves per ply that recently caused a cutoff
+        private long[][] history; // score per player per cell for moves that caused cutoffs
+        private int[] centerOrder;
+        private boolean timeUp;
+        private int completedDepth;
+        private int bestValue; // the value of the best move of the last completed search
+        private long nodes = 0;
+        private long probes = 0;
+        private long hits = 0;
+
+        /**
+         * Searches the board given to prepare. Without a time limit the main searcher searches to the depth of the
+         * player, with a time limit it deepens iteratively until the time is up or it is stopped. Helpers always
+         * deepen iteratively, up to the depth of the player, until they are stopped, and every helper starts with
+         * another move so they do not all search the same part of the tree at the same time. Helpers do not search
+         * deeper than the main searcher, as their deeper results in the table would change its move and value.
+         * @param helper 0 for the main searcher, the number of the helper otherwise.
+         * @return The best move of the last completed search.
+         */
+        int search(int helper) {
+            timeUp = false;
+            completedDepth = 0;
+            int bestMove = -1;
+            if (timeLimit > 0 || helper > 0) {
+                // Iterative deepening: every search starts with the best move of the one before.
+                // A search that runs out of time is thrown away.
+                int emptyCells = board.width * board.height - board.getPieceCount();
+                int maxDepth = (timeLimit > 0) ? Integer.MAX_VALUE : depth;
+                int firstMove = (helper > 0) ? centerOrder[helper % board.width] : -1;
+                for (int searchDepth = 1; searchDepth <= maxDepth; searchDepth++) {
+                    int move = searchRoot(searchDepth, firstMove);
+                    if (timeUp) {
+                        break;
+                    }
+                    bestMove = move;
+                    firstMove = move;
+                    completedDepth = searchDepth;
+                    if (searchDepth > emptyCells) {
+                        break; // a deeper search would see the same tree
+                    }
+                }
+            } else {
+                bestMove = searchRoot(depth, -1);
+                completedDepth = depth;
+            }
+            return bestMove;
+        }
+
+        /**
+         * Searches the moves of the root without a prebuilt tree.
+         * @param depth The depth for the search.
+         * @param firstMove The move to search first, or -1 to keep the order.
+         * @return The best move, or -1 if the depth is 0 or there was no time to search a move.
+         */
+        private int searchRoot(int depth, int firstMove) {
+            int bestMove = -1;
+            int alpha = Integer.MIN_VALUE;
+            int beta = Integer.MAX_VALUE;
+
+            if (depth > 0) {
+                int count = orderMoves(board, 0, firstMove, playerId);
+                int[] moves = moveBuffers[0];
+                for (int i = 0; i < count; i++) {
+                    int move = moves[i];
+                    play(move, playerId);
+                    int value = minValue(depth - 1, alpha, beta, playerId, player2Id);
+                    undo(move);
+                    if (timeUp) {
+                        return -1;
+                    }
 
+                    if (value > alpha) {
+                        alpha = value; // Update alpha
+                        bestMove = move;
+                    }
+                    if (alpha == Integer.MAX_VALUE) {
+                        // Nothing beats a win, and the next moves would get the empty window (MAX_VALUE, MAX_VALUE),
+                        // where a cutoff says nothing about the value and would be stored in the table as a bound
+                        break;
+                    }
+                }
+                bestValue = alpha;
+            }
+
+            return bestMove;
+        }
+
+        /**
+         * Puts the valid moves of a node in the move buffer of its ply, in the order to search them.
+         * Without move ordering this is the given first move followed by the other moves from left to right.
+         * With move ordering it is the first move, the two killer moves of the ply, and then the other moves by
+         * their history score, where moves closer to the center go first when the scores are equal.
+         * @param board The board in the state of the node.
+         * @param ply The number of moves from the root to the node.
+         * @param firstMove The move to search first, usually the move from the transposition table, or -1.
+         * @param player The ID of the player to move.
+         * @return The number of moves in the buffer.
+         */
+        private int orderMoves(Board board, int ply, int firstMove, int player) {
+            int[] moves = moveBuffers[ply];
+            int count = 0;
+            if (!moveOrdering) {
+                if (board.isValid(firstMove)) {
+                    moves[count++] = firstMove;
+                }
+                for (int move = 0; move < board.width; move++) {
+                    if (move != firstMove && board.isValid(move)) {
+                        moves[count++] = move;
+                    }
+                }
+                return count;
+            }
+
+            long[] scores = scoreBuffers[ply];
+            long[] playerHistory = history[player - 1];
+            for (int move : centerOrder) {
+                if (!board.isValid(move)) {
+                    continue;
+                }
+                long score;
+                if (move == firstMove) {
+                    score = 3L << 60;
+                } else if (move == killers[ply][0]) {
+                    score = 2L << 60;
+                } else if (move == killers[ply][1]) {
+                    score = 1L << 60;
+                } else {
+                    score = playerHistory[move * board.height + board.getHeight(move)];
+                }
+                // Insertion sort, stable so equal scores keep the center-first order
+                int i = count++;
+                while (i > 0 && scores[i - 1] < score) {
+                    moves[i] = moves[i - 1];
+                    scores[i] = scores[i - 1];
+                    i--;
+                }
+                moves[i] = move;
+                scores[i] = score;
+            }
+            return count;
+        }
+
+        /**
+         * Remembers a move that caused a cutoff, as killer move of its ply and in the history of the cell it was played on.
+         * @param board The board in the state of the node, with the move taken back.
+         * @param ply The number of moves from the root to the node.
+         * @param move The move that caused the cutoff.
+         * @param player The ID of the player that made the move.
+         * @param depth The remaining depth at the node, deeper cutoffs count more.
+         */
+        private void addCutoff(Board board, int ply, int move, int player, int depth) {
+            if (!moveOrdering) {
+                return;
+            }
+            if (killers[ply][0] != move) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = move;
+            }
+            long[] playerHistory = history[player - 1];
+            int cell = move * board.height + board.getHeight(move);
+            playerHistory[cell] = Math.min(playerHistory[cell] + (long) depth * depth, 1L << 59);
+        }
+
+        /**
+         * Prepares the search of a move: copies the board and prepares the buffers for it, the moves and
+         * scores per ply, the killer moves, and the history, which is kept between moves with half its weight.
+         */
+        void prepare(Board rootBoard) {
+            board = new Board(rootBoard);
+            int plies = board.width * board.height + 1;
+            if (moveBuffers == null || moveBuffers.length != plies || moveBuffers[0].length != board.width) {
+                moveBuffers = new int[plies][board.width];
+                scoreBuffers = new long[plies][board.width];
+                killers = new int[plies][2];
+                history = new long[2][board.width * board.height];
+                // Columns by their distance to the center, the left one first if two are as close
+                centerOrder = new int[board.width];
+                int n = 0;
+                for (int distance = 0; n < board.width; distance++) {
+                    for (int move = 0; move < board.width; move++) {
+                        if (Math.abs(2 * move - (board.width - 1)) == distance) {
+                            centerOrder[n++] = move;
+                        }
+                    }
+                }
+            }
+            for (int[] killer : killers) {
+                killer[0] = -1;
+                killer[1] = -1;
+            }
+            for (long[] playerHistory : history) {
+                for (int i = 0; i < playerHistory.length; i++) {
+                    playerHistory[i] /= 2;
+                }
+            }
+            rootPieces = board.getPieceCount();
+            evaluator = heuristic.createIncrementalEvaluator(board, gameN);
+        }
+
+        private void play(int move, int player) {
+            board.play(move, player);
+            if (evaluator != null) {
+                evaluator.play(move, player);
+            }
+        }
+
+        private void undo(int move) {
+            board.undo();
+            if (evaluator != null) {
+                evaluator.undo(move);
+            }
+        }
+
+        private int evaluate(int playerId) {
+            if (evaluator != null) {
+                return heuristic.evaluateBoard(playerId, evaluator);
+            }
+            return evaluatePosition(board, playerId);
+        }
+
+        /**
+         * Checks every 1024 nodes whether the search has been stopped or the time is up.
+         * @return true if the search has to stop
+         */
+        private boolean outOfTime() {
+            if ((nodes & 1023) == 0 && (stop || (timeLimit > 0 && System.nanoTime() - deadline >= 0))) {
+                timeUp = true;
+            }
+            return timeUp;
+        }
+
+        /**
+         * Computes the minimum value for the Minimax algorithm with Alpha-Beta pruning, without a prebuilt tree.
+         * The children of the node are created one at a time by playing the opponent's moves on the board,
+         * so the children after a cutoff are never created.
+         * @param depth The remaining depth for the search.
+         * @param alpha The alpha value for pruning.
+         * @param beta The beta value for pruning.
+         * @param currentPlayer The ID of the current player.
+         * @param opponent The ID of the opponent player.
+         * @return The minimum value for the given node.
+         */
+        private int minValue(int depth, int alpha, int beta, int currentPlayer, int opponent) {
+            nodes++;
+            if (outOfTime()) {
+                return 0; // thrown away by the caller
+            }
+            // A full board has no moves left, so it is evaluated like a leaf
+            if (depth == 0 || board.winning(gameN) != 0 || board.getPieceCount() == board.width * board.height) {
+                return evaluate(currentPlayer); // every leaf is valued for the searching player
+            }
+
+            int alphaIn = alpha;
+            int betaIn = beta;
+            long key = nodeKey(board, true);
+            int tableMove = -1;
+            if (table != null) {
+                long entry = probe(key);
+                if (entry != 0) {
+                    int value = TranspositionTable.getValue(entry);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (TranspositionTable.getDepth(entry) >= depth) {
+                        if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && value >= beta) {
+                            return Math.min(value, beta);
+                        } else if (bound == TranspositionTable.UPPER && value <= alpha) {
+                            return value;
+                        }
+                    }
+                    tableMove = TranspositionTable.getMove(entry);
+                }
+            }
+
+            // The move from the table first, then the other moves from left to right or in the move order
+            int ply = board.getPieceCount() - rootPieces;
+            int count = orderMoves(board, ply, tableMove, opponent);
+            int[] moves = moveBuffers[ply];
+            int bestMove = -1;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                play(move, opponent);
+                int value = maxValue(depth - 1, alpha, beta, currentPlayer, opponent);
+                undo(move);
+                if (timeUp) {
+                    return 0;
+                }
+                if (value < beta) {
+                    beta = value;
+                    bestMove = move;
+                }
+
+                if (alpha >= beta) {
+                    addCutoff(board, ply, move, opponent, depth);
+                    break; // Alpha-beta pruning
+                }
+            }
+
+            if (table != null) {
+                int bound = (beta >= betaIn) ? TranspositionTable.LOWER
+                        : (beta <= alphaIn) ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+                table.store(key, depth, bound, beta, bestMove);
+            }
+
+            return beta;
+        }
+
+        /**
+         * Computes the maximum value for the Minimax algorithm with Alpha-Beta pruning, without a prebuilt tree.
+         * @param depth The remaining depth for the search.
+         * @param alpha The alpha value for pruning.
+         * @param beta The beta value for pruning.
+         * @param currentPlayer The ID of the current player.
+         * @param opponent The ID of the opponent player.
+         * @return The maximum value for the given node.
+         */
+        private int maxValue(int depth, int alpha, int beta, int currentPlayer, int opponent) {
+            nodes++;
+            if (outOfTime()) {
+                return 0; // thrown away by the caller
+            }
+            // A full board has no moves left, so it is evaluated like a leaf
+            if (depth == 0 || board.winning(gameN) != 0 || board.getPieceCount() == board.width * board.height) {
+                return evaluate(currentPlayer);
+            }
+
+            int alphaIn = alpha;
+            int betaIn = beta;
+            long key = nodeKey(board, false);
+            int tableMove = -1;
+            if (table != null) {
+                long entry = probe(key);
+                if (entry != 0) {
+                    int value = TranspositionTable.getValue(entry);
+                    int bound = TranspositionTable.getBound(entry);
+                    if (TranspositionTable.getDepth(entry) >= depth) {
+                        if (bound == TranspositionTable.EXACT || bound == TranspositionTable.UPPER && value <= alpha) {
+                            return Math.max(value, alpha);
+                        } else if (bound == TranspositionTable.LOWER && value >= beta) {
+                            return value;
+                        }
+                    }
+                    tableMove = TranspositionTable.getMove(entry);
+                }
+            }
+
+            int ply = board.getPieceCount() - rootPieces;
+            int count = orderMoves(board, ply, tableMove, currentPlayer);
+            int[] moves = moveBuffers[ply];
+            int bestMove = -1;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                play(move, currentPlayer);
+                int value = minValue(depth - 1, alpha, beta, currentPlayer, opponent);
+                undo(move);
+                if (timeUp) {
+                    return 0;
+                }
+                if (value > alpha) {
+                    alpha = value; // Update alpha
+                    bestMove = move;
+                }
+
+                if (alpha >= beta) {
+                    addCutoff(board, ply, move, currentPlayer, depth);
+                    break; // Alpha-beta pruning
+                }
+            }
+
+            if (table != null) {
+                int bound = (alpha <= alphaIn) ? TranspositionTable.UPPER
+                        : (alpha >= betaIn) ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+                table.store(key, depth, bound, alpha, bestMove);
+            }
+
+            return alpha;
+        }
+
+        /**
+         * Looks up a position in the transposition table and counts the hits.
+         * @return The packed entry, or 0 on a miss.
+         */
+        private long probe(long key) {
+            probes++;
+            long entry = table.probe(key);
+            if (entry != 0) {
+                hits++;
+            }
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Players;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import NRow.Board;
+import NRow.Heuristics.Heuristic;
+import NRow.Heuristics.IncrementalEvaluator;
+
+/**
+ * A player that chooses its moves with Monte Carlo Tree Search. Every simulation walks down the tree with UCT,
+ * adds one new node, plays the game out to the end from there, and counts the result in all nodes on the way.
+ * The move that was simulated most often is played. Instead of a depth it gets a number of simulations per move,
+ * or a time limit.
+ *
+ * With several threads every thread grows a tree of its own (root parallelism), and the simulations of the moves
+ * of the root are added up over the trees. The trees are stored in arrays that are kept between moves, so the
+ * simulations do not create garbage.
+ */
+public class MCTSPlayer extends PlayerController {
+    private static final int MAX_NODES = 1 << 22; // the nodes of all trees together, about 100 MB
+
+    private int simulations;
+    private double exploration = Math.sqrt(2);
+    private boolean heuristicPlayouts;
+    private int threads = 1;
+    private Tree[] trees = { new Tree(0) };
+    private ExecutorService pool;
+    private long deadline;
+
+    /**
+     * Constructs a new MCTSPlayer with the specified parameters.
+     * @param playerId The ID of the player.
+     * @param gameN The value of N for the game.
+     * @param simulations The number of simulations per move, when the player has no time limit.
+     * @param heuristic The heuristic used for the playouts, if they are guided by the heuristic.
+     */
+    public MCTSPlayer(int playerId, int gameN, int simulations, Heuristic heuristic) {
+        super(playerId, gameN, heuristic);
+        this.simulations = simulations;
+    }
+
+    /**
+     * Makes a move by running the simulations, or simulating until the time is up.
+     * @param board The current game board.
+     * @return The column that was simulated most often.
+     */
+    @Override
+    public int makeMove(Board board) {
+        if (board.getPieceCount() == board.width * board.height) {
+            System.out.println("No available moves left.");
+            return -1;
+        }
+
+        long start = System.nanoTime();
+        deadline = start + timeLimit * 1000000;
+        for (Tree tree : trees) {
+            tree.prepare(board);
+        }
+
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < trees.length; i++) {
+            final Tree tree = trees[i];
+            final long count = share(i);
+            helpers.add(pool.submit(() -> tree.search(count)));
+        }
+        trees[0].search(share(0));
+        for (Future<?> future : helpers) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("A helper search failed", e);
+            }
+        }
+
+        // Add up the simulations of the moves of the root over all trees
+        long[] moveSimulations = new long[board.width];
+        for (Tree tree : trees) {
+            for (int child = tree.firstChild[0]; child != -1; child = tree.nextSibling[child]) {
+                moveSimulations[tree.move[child]] += tree.visits[child];
+            }
+            nodeCount += tree.playouts;
+            tree.playouts = 0;
+        }
+        int bestMove = -1;
+        for (int move = 0; move < board.width; move++) {
+            if (board.isValid(move) && (bestMove == -1 || moveSimulations[move] > moveSimulations[bestMove])) {
+                bestMove = move;
+            }
+        }
+        depthReached = trees[0].maxDepth;
+        timeUsed = (System.nanoTime() - start) / 1000000;
+
+        return bestMove;
+    }
+
+    /**
+     * @return The number of simulations a tree runs: its share of the simulations of the player,
+     *         or as many as fit in the time limit
+     */
+    private long share(int tree) {
+        if (timeLimit > 0) {
+            return Long.MAX_VALUE;
+        }
+        return simulations / trees.length + (tree < simulations % trees.length ? 1 : 0);
+    }
+
+    /**
+     * Lets the player simulate on several threads, every thread with a tree of its own.
+     * The simulations per move are divided over the trees. With one thread the player is deterministic.
+     * @param threads The number of threads to simulate with.
+     */
+    public void setThreads(int threads) {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        this.threads = Math.max(1, threads);
+        trees = new Tree[this.threads];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new Tree(i);
+        }
+        if (this.threads > 1) {
+            pool = Executors.newFixedThreadPool(this.threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "MCTSPlayer helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Lets the playouts choose the move with the best heuristic value for the player to move,
+     * instead of a random move. They are much slower, but play more like the game would go.
+     * @param heuristicPlayouts Whether the playouts are guided by the heuristic.
+     */
+    public void setHeuristicPlayouts(boolean heuristicPlayouts) {
+        this.heuristicPlayouts = heuristicPlayouts;
+    }
+
+    /**
+     * @param exploration The constant of the UCT formula: higher values try the less promising moves more often.
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * @return The number of simulations the player ran
+     */
+    @Override
+    public String getSearchStatistics() {
+        return "ran " + nodeCount + " simulations";
+    }
+
+    /**
+     * The tree of one thread. The nodes are numbered, with the root at 0, and every field of the nodes is an array.
+     * A node holds the move that leads to it and the result of its simulations for the player that made that move:
+     * two points for a win and one for a draw. The children of a node are a linked list, and the moves that do not
+     * have a child yet are added one per simulation, from the center outwards.
+     */
+    private class Tree {
+        private final Random random;
+        private Board board;
+        private IncrementalEvaluator evaluator; // follows the board in heuristic playouts, if the heuristic has one
+        private int[] move = new int[0];
+        private int[] visits = new int[0];
+        private long[] score = new long[0];
+        private int[] firstChild = new int[0];
+        private int[] nextSibling = new int[0];
+        private int[] untried = new int[0]; // the next index in centerOrder to add a child for
+        private int size;
+        private int[] path; // the nodes of the current simulation
+        private int[] validMoves;
+        private int[] centerOrder;
+        private long playouts;
+        private int maxDepth;
+
+        Tree(int index) {
+            random = new Random(42 + index);
+        }
+
+        /**
+         * Prepares the tree for a move: copies the board, and empties the tree except for the root.
+         */
+        void prepare(Board rootBoard) {
+            board = new Board(rootBoard);
+            evaluator = heuristicPlayouts ? heuristic.createIncrementalEvaluator(board, gameN) : null;
+            if (path == null || path.length != board.width * board.height + 2 || validMoves.length != board.width) {
+                path = new int[board.width * board.height + 2];
+                validMoves = new int[board.width];
+                // Columns by their distance to the center, the left one first if two are as close
+                centerOrder = new int[board.width];
+                int n = 0;
+                for (int distance = 0; n < board.width; distance++) {
+                    for (int column = 0; column < board.width; column++) {
+                        if (Math.abs(2 * column - (board.width - 1)) == distance) {
+                            centerOrder[n++] = column;
+                        }
+                    }
+                }
+            }
+            if (move.length == 0) {
+                grow();
+            }
+            size = 0;
+            maxDepth = 0;
+            newNode(-1);
+        }
+
+        /**
+         * Runs simulations until there have been enough or the time is up.
+         */
+        void search(long count) {
+            for (long i = 0; i < count; i++) {
+                if (timeLimit > 0 && (i & 15) == 0 && System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                simulate();
+            }
+        }
+
+        /**
+         * Runs one simulation: selection, expansion, playout and backpropagation.
+         */
+        private void simulate() {
+            int node = 0;
+            int depth = 0;
+            int toMove = playerId;
+            int result = 0;
+            path[depth++] = node;
+
+            while (true) {
+                int column = (size < move.length || grow()) ? nextUntried(node) : -1;
+                if (column >= 0) {
+                    // Expansion: add a child for a move that has none yet
+                    int child = newNode(column);
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                    node = child;
+                } else if (firstChild[node] != -1) {
+                    node = select(node);
+                } else {
+                    break; // no room for more nodes
+                }
+                play(move[node], toMove);
+                toMove = (toMove == 1) ? 2 : 1;
+                path[depth++] = node;
+                result = board.winning(gameN);
+                if (result != 0 || column >= 0) {
+                    break;
+                }
+            }
+            maxDepth = Math.max(maxDepth, depth - 1);
+
+            if (result == 0) {
+                result = playout(toMove);
+            }
+
+            // Backpropagation, for the player that made the move to each node
+            int mover = (playerId == 1) ? 2 : 1;
+            for (int i = 0; i < depth; i++) {
+                int n = path[i];
+                visits[n]++;
+                score[n] += (result == mover) ? 2 : (result == -1) ? 1 : 0;
+                mover = (mover == 1) ? 2 : 1;
+            }
+            for (int i = 1; i < depth; i++) {
+                undo();
+            }
+            playouts++;
+        }
+
+        /**
+         * @return The child with the highest UCT value
+         */
+        private int select(int node) {
+            double logVisits = Math.log(visits[node]);
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                double value = score[child] / (2.0 * visits[child]) + exploration * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * @return The next valid move of the node that has no child yet, or -1 if all moves have a child
+         */
+        private int nextUntried(int node) {
+            while (untried[node] < centerOrder.length) {
+                int column = centerOrder[untried[node]++];
+                if (board.isValid(column)) {
+                    return column;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Plays the game out from the board with random moves, or the moves the heuristic likes best.
+         * @param toMove The player to move.
+         * @return The winner, or -1 for a draw.
+         */
+        private int playout(int toMove) {
+            int played = 0;
+            int result = 0;
+            while (result == 0) {
+                int count = 0;
+                for (int column = 0; column < board.width; column++) {
+                    if (board.isValid(column)) {
+                        validMoves[count++] = column;
+                    }
+                }
+                int column = heuristicPlayouts ? bestMove(count, toMove) : validMoves[random.nextInt(count)];
+                play(column, toMove);
+                played++;
+                result = board.winning(gameN);
+                toMove = (toMove == 1) ? 2 : 1;
+            }
+            for (int i = 0; i < played; i++) {
+                undo();
+            }
+            return result;
+        }
+
+        /**
+         * @return The valid move with the best heuristic value for the player, a random one of them if several are as good
+         */
+        private int bestMove(int count, int player) {
+            int best = -1;
+            int bestValue = Integer.MIN_VALUE;
+            int ties = 0;
+            for (int i = 0; i < count; i++) {
+                play(validMoves[i], player);
+                int value = (evaluator != null) ? heuristic.evaluateBoard(player, evaluator)
+                        : heuristic.evaluateBoard(player, board, gameN);
+                undo();
+                if (best == -1 || value > bestValue) {
+                    best = validMoves[i];
+                    bestValue = value;
+                    ties = 1;
+                } else if (value == bestValue && random.nextInt(++ties) == 0) {
+                    best = validMoves[i];
+                }
+            }
+            return best;
+        }
+
+        private void play(int column, int player) {
+            board.play(column, player);
+            if (evaluator != null) {
+                evaluator.play(column, player);
+            }
+        }
+
+        private void undo() {
+            int column = board.undo();
+            if (evaluator != null) {
+                evaluator.undo(column);
+            }
+        }
+
+        private int newNode(int column) {
+            move[size] = column;
+            visits[size] = 0;
+            score[size] = 0;
+            firstChild[size] = -1;
+            nextSibling[size] = -1;
+            untried[size] = 0;
+            return size++;
+        }
+
+        /**
+         * Makes the node arrays twice as large, up to this tree's share of the maximum number of nodes.
+         * @return false if the tree is full
+         */
+        private boolean grow() {
+            int limit = Math.max(1 << 16, MAX_NODES / trees.length);
+            if (move.length >= limit) {
+                return false;
+            }
+            int length = Math.min(limit, Math.max(1 << 12, move.length * 2));
+            move = Arrays.copyOf(move, length);
+            visits = Arrays.copyOf(visits, length);
+            score = Arrays.copyOf(score, length);
+            firstChild = Arrays.copyOf(firstChild, length);
+            nextSibling = Arrays.copyOf(nextSibling, length);
+            untried = Arrays.copyOf(untried, length);
+            return true;
+        }
+    }
+}
@@ -7,15 +7,16 @@
 
 package NRow.Players;
 
-import NRow.TreeNode;
 import NRow.Board;
 import NRow.Heuristics.Heuristic;
-import NRow.Game;
+import NRow.Heuristics.IncrementalEvaluator;
 
 public class MinMaxPlayer extends PlayerController {
     private int depth;
-    private TreeNode rootNode;
     private int player2Id; // Add a field for player2ID
+    private long deadline;
+    private boolean timeUp;
+    private IncrementalEvaluator evaluator; // follows the search board if the heuristic has one
 
     /**
      * Constructs a MinMaxPlayer with the specified parameters.
@@ -27,7 +28,6 @@ public class MinMaxPlayer extends PlayerController {
     public MinMaxPlayer(int playerId, int gameN, int depth, Heuristic heuristic) {
         super(playerId, gameN, heuristic);
         this.depth = depth;
-        this.rootNode = new TreeNode(null, -1);
         this.player2Id = (playerId == 1) ? 2 : 1; // Set player2ID based on playerId
     }
 
@@ -39,25 +39,41 @@ public class MinMaxPlayer extends PlayerController {
     @Override
     public int makeMove(Board board) {
         int[] availableMoves = getAvailableMoves(board);
-        rootNode = new TreeNode(board, -1);
-        buildTree(rootNode, depth, playerId);
 
         if (availableMoves.length == 0) {
             System.out.println("No available moves left.");
             return -1;
         }
 
+        long start = System.nanoTime();
         int bestMove = -1;
-        int bestValue = Integer.MIN_VALUE;
-
-        for (TreeNode child : rootNode.getChildren()) {
-            int value = minValue(child, depth, playerId, player2Id);
 
-            if (value > bestValue) {
-                bestValue = value;
-                bestMove = child.getMove();
+        // The search plays and takes back moves on one copy of the board
+        Board searchBoard = new Board(board);
+        evaluator = heuristic.createIncrementalEvaluator(searchBoard, gameN);
+        timeUp = false;
+        if (timeLimit > 0) {
+            // Iterative deepening: every search starts with the best move of the one before.
+            // A search that runs out of time is thrown away.
+            deadline = start + timeLimit * 1000000;
+            depthReached = 0;
+            int emptyCells = board.width * board.height - board.getPieceCount();
+            for (int searchDepth = 1; ; searchDepth++) {
+                int move = searchRoot(searchBoard, searchDepth, availableMoves, bestMove);
+                if (timeUp) {
+                    break;
+                }
+                bestMove = move;
+                depthReached = searchDepth;
+                if (searchDepth > emptyCells) {
+                    break; // a deeper search would see the same tree
+                }
             }
+        } else {
+            bestMove = searchRoot(searchBoard, depth, availableMoves, -1);
+            depthReached = depth;
         }
+        timeUsed = (System.nanoTime() - start) / 1000000;
 
         int validMove = findValidMove(board, bestMove);
         if (validMove != -1) {
@@ -67,6 +83,52 @@ public class MinMaxPlayer extends PlayerController {
         }
     }
 
+    /**
+     * Searches the moves of the root.
+     * @param board The board to search on, in the state of the root.
+     * @param depth The depth for the search.
+     * @param availableMoves The moves of the root from left to right.
+     * @param firstMove The move to search first, or -1 to keep the order.
+     * @return The best move, or -1 if the depth is 0 or there was no time to search a move.
+     */
+    private int searchRoot(Board board, int depth, int[] availableMoves, int firstMove) {
+        int bestMove = -1;
+        int bestValue = Integer.MIN_VALUE;
+
+        if (depth > 0) {
+            for (int i = -1; i < availableMoves.length; i++) {
+                int move = (i < 0) ? firstMove : availableMoves[i];
+                if ((i >= 0 && move == firstMove) || !play(board, move, playerId)) {
+                    continue;
+                }
+                int value = minValue(board, depth - 1, playerId, player2Id);
+                undo(board, move);
+                if (timeUp) {
+                    return -1;
+                }
+
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestMove = move;
+                }
+            }
+            moveValue = bestValue;
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Checks the clock every 1024 nodes when the player searches to a time limit.
+     * @return true if the search has to stop
+     */
+    private boolean outOfTime() {
+        if (timeLimit > 0 && (nodeCount & 1023) == 0 && System.nanoTime() - deadline >= 0) {
+            timeUp = true;
+        }
+        return timeUp;
+    }
+
     /**
      * Finds a valid move starting from the specified move and wrapping around if needed.
      * @param board The current game board.
@@ -90,45 +152,37 @@ public class MinMaxPlayer extends PlayerController {
         }
     }
 
-    /**
-     * Builds the game tree up to a specified depth, exploring possible moves for the current player.
-     * @param node The current node of the game tree.
-     * @param depth The maximum depth to explore.
-     * @param currentPlayer The ID of the current player.
-     */
-    private void buildTree(TreeNode node, int depth, int currentPlayer) {
-        if (depth == 0 || Game.winning(node.getBoard().getBoardState(), gameN) != 0) {
-            return;
-        }
-
-        int[] availableMoves = getAvailableMoves(node.getBoard());
-
-        for (int move : availableMoves) {
-            Board newBoard = node.getBoard().getNewBoard(move, currentPlayer);
-            TreeNode childNode = new TreeNode(newBoard, move);
-            node.addChild(childNode);
-            buildTree(childNode, depth - 1, (currentPlayer == playerId) ? player2Id : playerId);
-        }
-    }
-
     /**
      * Computes the minimum value for a node in the Minimax algorithm.
-     * @param node The current node in the game tree.
+     * The node is the current state of the board, its children are visited by playing
+     * the opponent's moves on the board and taking them back afterwards.
+     * @param board The board in the state of the current node.
      * @param depth The remaining depth to explore.
      * @param currentPlayer The ID of the current player.
      * @param opponent The ID of the opponent player.
      * @return The minimum value.
      */
-    private int minValue(TreeNode node, int depth, int currentPlayer, int opponent) {
-        if (depth == 0 || Game.winning(node.getBoard().getBoardState(), gameN) != 0) {
-            return evaluatePosition(node.getBoard(), opponent);
+    private int minValue(Board board, int depth, int currentPlayer, int opponent) {
+        nodeCount++;
+        if (outOfTime()) {
+            return 0; // thrown away by the caller
+        }
+        // A full board has no moves left, so it is evaluated like a leaf
+        if (depth == 0 || board.winning(gameN) != 0 || board.getPieceCount() == board.width * board.height) {
+            return evaluatePosition(board, currentPlayer); // every leaf is valued for the searching player
         }
 
         int bestValue = Integer.MAX_VALUE;
 
-        for (TreeNode child : node.getChildren()) {
-            int value = maxValue(child, depth - 1, currentPlayer, opponent);
-            bestValue = Math.min(bestValue, value);
+        for (int move = 0; move < board.width; move++) {
+            if (play(board, move, opponent)) {
+                int value = maxValue(board, depth - 1, currentPlayer, opponent);
+                undo(board, move);
+                if (timeUp) {
+                    return 0;
+                }
+                bestValue = Math.min(bestValue, value);
+            }
         }
 
         return bestValue;
@@ -136,22 +190,32 @@ public class MinMaxPlayer extends PlayerController {
 
     /**
      * Computes the maximum value for a node in the Minimax algorithm.
-     * @param node The current node in the game tree.
+     * @param board The board in the state of the current node.
      * @param depth The remaining depth to explore.
      * @param currentPlayer The ID of the current player.
      * @param opponent The ID of the opponent player.
      * @return The maximum value.
      */
-    private int maxValue(TreeNode node, int depth, int currentPlayer, int opponent) {
-        if (depth == 0 || Game.winning(node.getBoard().getBoardState(), gameN) != 0) {
-            return evaluatePosition(node.getBoard(), currentPlayer);
+    private int maxValue(Board board, int depth, int currentPlayer, int opponent) {
+        nodeCount++;
+        if (outOfTime()) {
+            return 0; // thrown away by the caller
+        }
+        if (depth == 0 || board.winning(gameN) != 0 || board.getPieceCount() == board.width * board.height) {
+            return evaluatePosition(board, currentPlayer);
         }
 
         int bestValue = Integer.MIN_VALUE;
 
-        for (TreeNode child : node.getChildren()) {
-            int value = minValue(child, depth - 1, currentPlayer, opponent);
-            bestValue = Math.max(bestValue, value);
+        for (int move = 0; move < board.width; move++) {
+            if (play(board, move, currentPlayer)) {
+                int value = minValue(board, depth - 1, currentPlayer, opponent);
+                undo(board, move);
+                if (timeUp) {
+                    return 0;
+                }
+                bestValue = Math.max(bestValue, value);
+            }
         }
 
         return bestValue;
@@ -164,9 +228,36 @@ public class MinMaxPlayer extends PlayerController {
      * @return The evaluation score of the board.
      */
     private int evaluatePosition(Board board, int playerId) {
+        if (evaluator != null) {
+            return heuristic.evaluateBoard(playerId, evaluator);
+        }
         return heuristic.evaluateBoard(playerId, board, gameN);
     }
 
+    /**
+     * Plays a move on the search board and on the evaluator that follows it.
+     * @return true if the move was valid
+     */
+    private boolean play(Board board, int move, int playerId) {
+        if (!board.play(move, playerId)) {
+            return false;
+        }
+        if (evaluator != null) {
+            evaluator.play(move, playerId);
+        }
+        return true;
+    }
+
+    /**
+     * Takes a move back on the search board and on the evaluator that follows it.
+     */
+    private void undo(Board board, int move) {
+        board.undo();
+        if (evaluator != null) {
+            evaluator.undo(move);
+        }
+    }
+
     /**
      * Retrieves an array of available moves on the current game board.
      * @param board The current game board.
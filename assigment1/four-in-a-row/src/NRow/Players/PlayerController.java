@@ -17,6 +17,11 @@ public abstract class PlayerController {
   public final int playerId;
   protected int gameN;
   protected Heuristic heuristic;
+  protected long nodeCount = 0;
+  protected long timeLimit = 0; // milliseconds per move, 0 to search to a fixed depth
+  protected int depthReached = 0;
+  protected long timeUsed = 0;
+  protected int moveValue = 0;
 
   /**
    * Create human player, enabling human computer interaction through the console
@@ -37,6 +42,51 @@ public abstract class PlayerController {
     return heuristic.getEvalCount();
   }
 
+  /**
+   * @return The amount of positions the player visited in its searches
+   */
+  public long getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Lets a search player work to a time budget instead of a fixed depth: it searches to depth 1, 2, 3, ...
+   * until the time is up, and plays the best move of the deepest search that was completed.
+   * @param milliseconds time per move, or 0 to search to the fixed depth again
+   */
+  public void setTimeLimit(long milliseconds) {
+    this.timeLimit = milliseconds;
+  }
+
+  /**
+   * @return The depth of the last completed search of the previous move
+   */
+  public int getDepthReached() {
+    return depthReached;
+  }
+
+  /**
+   * @return The time in milliseconds the previous move took
+   */
+  public long getTimeUsed() {
+    return timeUsed;
+  }
+
+  /**
+   * @return The value the last completed search of the previous move gave the chosen move,
+   *         for the players that search a game tree
+   */
+  public int getMoveValue() {
+    return moveValue;
+  }
+
+  /**
+   * @return A description of the searches of the player, for at the end of a game
+   */
+  public String getSearchStatistics() {
+    return "searched " + nodeCount + " positions";
+  }
+
   /**
    * Get a nice String representation for displaying the board
    */
@@ -0,0 +1,132 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Players;
+
+/**
+ * The TranspositionTable class stores search results of positions by their Zobrist key, so a
+ * position that is reached again through other moves does not have to be searched again.
+ *
+ * The table has a fixed size. Every key maps to a bucket of two entries: the first keeps the
+ * deepest result and is only replaced by a result of the same or a larger depth or by one of a
+ * newer search, the second is always replaced. A position that is already in the bucket keeps its
+ * entry, which is only replaced by a deeper result, or by an exact value of the same depth.
+ *
+ * An entry is packed into one long and stored together with its key XOR the entry. A reader
+ * only accepts an entry if the XOR gives back the key, so an entry that is half written by another
+ * thread is treated as a miss. This makes it safe to share one table between parallel searchers
+ * without locks.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1; // the value is the value of the position
+    public static final int LOWER = 2; // the value of the position is at least the value
+    public static final int UPPER = 3; // the value of the position is at most the value
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+
+    /**
+     * Constructs a new TranspositionTable.
+     * @param sizeLog2 The table has 2^sizeLog2 buckets of two entries.
+     */
+    public TranspositionTable(int sizeLog2) {
+        this.keys = new long[2 << sizeLog2];
+        this.entries = new long[2 << sizeLog2];
+        this.mask = (1 << sizeLog2) - 1;
+    }
+
+    /**
+     * Marks the start of a new search, after which the deepest entries of older searches may be replaced.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xff;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key The Zobrist key of the position.
+     * @return The packed entry, or 0 if the position is not in the table.
+     */
+    public long probe(long key) {
+        int bucket = bucket(key);
+        for (int i = bucket; i < bucket + 2; i++) {
+            long entry = entries[i];
+            if ((keys[i] ^ entry) == key && entry != 0) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search of a position.
+     * @param key The Zobrist key of the position.
+     * @param depth The remaining depth of the search.
+     * @param bound EXACT, LOWER or UPPER.
+     * @param value The value found by the search.
+     * @param move The best move found, or -1 if there is none.
+     */
+    public void store(long key, int depth, int bound, int value, int move) {
+        long entry = (value & 0xffffffffL)
+                | (long) Math.min(depth, 0xff) << 32
+                | (long) bound << 40
+                | (long) ((move + 1) & 0xfff) << 42
+                | (long) generation << 54;
+        int i = bucket(key);
+        for (int j = i; j < i + 2; j++) {
+            long old = entries[j];
+            if ((keys[j] ^ old) == key && old != 0) {
+                if (getDepth(old) > depth || (getDepth(old) == depth && getBound(old) == EXACT && bound != EXACT)) {
+                    return; // the table already has a better result for this position
+                }
+                keys[j] = key ^ entry;
+                entries[j] = entry;
+                return;
+            }
+        }
+        long old = entries[i];
+        if (getDepth(old) > depth && (int) (old >>> 54) == generation) {
+            i++; // the first entry holds a deeper result of this search
+        }
+        keys[i] = key ^ entry;
+        entries[i] = entry;
+    }
+
+    /**
+     * @return The value of a packed entry.
+     */
+    public static int getValue(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @return The depth of a packed entry.
+     */
+    public static int getDepth(long entry) {
+        return (int) (entry >>> 32) & 0xff;
+    }
+
+    /**
+     * @return The bound of a packed entry: EXACT, LOWER or UPPER.
+     */
+    public static int getBound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * @return The best move of a packed entry, or -1 if there is none.
+     */
+    public static int getMove(long entry) {
+        return ((int) (entry >>> 42) & 0xfff) - 1;
+    }
+
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) << 1;
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import java.util.Random;
+
+import NRow.Board;
+import NRow.Heuristics.*;
+import NRow.Players.*;
+
+/**
+ * The IncrementalEvaluatorTest class is responsible for testing the incremental evaluator of the CustomHeuristic.
+ * For several board sizes it plays and takes back random moves, evaluates the board after every move both
+ * with the heuristic and with the evaluator, and prints the number of different values and the time per evaluation.
+ * Then it lets the MinMax and AlphaBeta players search random positions to a fixed depth with and without the
+ * evaluator, and prints the number of positions where they choose another move or give it another value.
+ */
+public class IncrementalEvaluatorTest {
+    private static int gameN = 4;
+    private static int steps = 200000;
+    private static int positions = 20;
+    private static int minMaxDepth = 4;
+    private static int alphaBetaDepth = 7;
+
+    /**
+     * The main method of the IncrementalEvaluatorTest class.
+     */
+    public static void main(String[] args) {
+        int[][] boardSizes = {{7, 6}, {9, 7}, {11, 9}, {15, 13}};
+
+        for (int[] boardSize : boardSizes) {
+            int width = boardSize[0];
+            int height = boardSize[1];
+            CustomHeuristic heuristic = new CustomHeuristic(gameN);
+            Board board = new Board(width, height);
+            IncrementalEvaluator evaluator = heuristic.createIncrementalEvaluator(board, gameN);
+            Random random = new Random(42);
+            int[] moves = new int[width * height];
+            int moveCount = 0;
+            int differences = 0;
+            long boardTime = 0;
+            long evaluatorTime = 0;
+
+            for (int step = 0; step < steps; step++) {
+                // Fill the board up to two thirds, taking back about as many moves as are played
+                boolean full = board.getPieceCount() >= width * height * 2 / 3;
+                if (moveCount > 0 && (full || random.nextBoolean())) {
+                    int move = moves[--moveCount];
+                    board.undo();
+                    evaluator.undo(move);
+                } else {
+                    int move;
+                    do {
+                        move = random.nextInt(width);
+                    } while (!board.isValid(move));
+                    int playerId = board.getPieceCount() % 2 + 1;
+                    board.play(move, playerId);
+                    evaluator.play(move, playerId);
+                    moves[moveCount++] = move;
+                }
+
+                for (int player = 1; player <= 2; player++) {
+                    long start = System.nanoTime();
+                    int boardValue = heuristic.evaluateBoard(player, board, gameN);
+                    long middle = System.nanoTime();
+                    int evaluatorValue = heuristic.evaluateBoard(player, evaluator);
+                    evaluatorTime += System.nanoTime() - middle;
+                    boardTime += middle - start;
+                    if (boardValue != evaluatorValue) {
+                        differences++;
+                    }
+                }
+            }
+
+            System.out.println("Board Size " + width + "x" + height + ":");
+            System.out.println("  different values: " + differences + " of " + 2 * steps);
+            System.out.printf("  whole board: %6.0f ns per evaluation%n", boardTime / (2.0 * steps));
+            System.out.printf("  incremental: %6.0f ns per evaluation%n", evaluatorTime / (2.0 * steps));
+        }
+
+        System.out.println();
+        for (int[] boardSize : boardSizes) {
+            int width = boardSize[0];
+            int height = boardSize[1];
+            Random random = new Random(42);
+            int minMaxDifferences = 0;
+            int alphaBetaDifferences = 0;
+
+            for (int i = 0; i < positions; i++) {
+                Board board = randomPosition(width, height, random);
+                int playerId = board.getPieceCount() % 2 + 1;
+                if (differentSearch(board, new MinMaxPlayer(playerId, gameN, minMaxDepth, new CustomHeuristic(gameN)),
+                        new MinMaxPlayer(playerId, gameN, minMaxDepth, wholeBoardHeuristic()))) {
+                    minMaxDifferences++;
+                }
+                if (differentSearch(board, new AlphaBetaPlayer(playerId, gameN, alphaBetaDepth, new CustomHeuristic(gameN)),
+                        new AlphaBetaPlayer(playerId, gameN, alphaBetaDepth, wholeBoardHeuristic()))) {
+                    alphaBetaDifferences++;
+                }
+            }
+
+            System.out.println("Board Size " + width + "x" + height + ", searches with and without the evaluator:");
+            System.out.println("  MinMax depth " + minMaxDepth + ": different moves or values in "
+                    + minMaxDifferences + " of " + positions + " positions");
+            System.out.println("  AlphaBeta depth " + alphaBetaDepth + ": different moves or values in "
+                    + alphaBetaDifferences + " of " + positions + " positions");
+        }
+    }
+
+    /**
+     * Lets two players choose a move for the same board.
+     *
+     * @return true if they choose another move or give it another value.
+     */
+    private static boolean differentSearch(Board board, PlayerController player, PlayerController other) {
+        int move = player.makeMove(board);
+        int otherMove = other.makeMove(board);
+        return move != otherMove || player.getMoveValue() != other.getMoveValue();
+    }
+
+    /**
+     * @return The CustomHeuristic without its incremental evaluator, so the players evaluate the whole board.
+     */
+    private static CustomHeuristic wholeBoardHeuristic() {
+        return new CustomHeuristic(gameN) {
+            @Override
+            public IncrementalEvaluator createIncrementalEvaluator(Board board, int gameN) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Creates a board with a few random moves played, without a winner.
+     */
+    private static Board randomPosition(int width, int height, Random random) {
+        Board board;
+        do {
+            board = new Board(width, height);
+            for (int m = 0; m < 8; m++) {
+                int move;
+                do {
+                    move = random.nextInt(width);
+                } while (!board.isValid(move));
+                board.play(move, m % 2 + 1);
+            }
+        } while (board.winning(gameN) != 0);
+        return board;
+    }
+}
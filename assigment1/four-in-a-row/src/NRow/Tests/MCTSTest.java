@@ -0,0 +1,94 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import NRow.Board;
+import NRow.Players.*;
+import NRow.Heuristics.*;
+
+/**
+ * The MCTSTest class is responsible for testing the MCTS player.
+ * It plays games between the MCTS player and the AlphaBeta player for different board sizes and N,
+ * with both players moving first, and prints the results and the time the AlphaBeta player used per move,
+ * to compare with the fixed time of the MCTS player. It also prints how many simulations the
+ * MCTS player runs per second with 1, 2, 4 and 8 threads.
+ */
+public class MCTSTest {
+    private static int games = 4;
+    private static long timeLimit = 200;
+    private static long alphaBetaTime; // milliseconds the AlphaBeta player used in the games of a configuration
+    private static int alphaBetaMoves;
+
+    /**
+     * The main method of the MCTSTest class.
+     */
+    public static void main(String[] args) {
+        // Width, height, N and the depth of the AlphaBeta player
+        int[][] configurations = {{7, 6, 4, 8}, {11, 7, 5, 7}, {15, 9, 6, 6}};
+
+        for (int[] configuration : configurations) {
+            int width = configuration[0];
+            int height = configuration[1];
+            int gameN = configuration[2];
+            int depth = configuration[3];
+            int[] results = new int[3]; // MCTS wins, AlphaBeta wins, draws
+            alphaBetaTime = 0;
+            alphaBetaMoves = 0;
+            for (int game = 0; game < games; game++) {
+                int winner = playGame(width, height, gameN, depth, game % 2 == 0);
+                results[winner]++;
+            }
+            System.out.println("Board Size " + width + "x" + height + ", N = " + gameN + ", MCTS " + timeLimit
+                    + " ms per move against AlphaBeta depth " + depth + ":");
+            System.out.println("  MCTS won " + results[0] + ", AlphaBeta won " + results[1] + ", draws " + results[2]);
+            System.out.printf("  AlphaBeta used %.0f ms per move%n", alphaBetaTime / (double) Math.max(1, alphaBetaMoves));
+        }
+
+        System.out.println("Simulations per second on the empty 7x6 board:");
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            MCTSPlayer player = new MCTSPlayer(1, 4, 0, new CustomHeuristic(4));
+            player.setThreads(threads);
+            player.setTimeLimit(1000);
+            player.makeMove(new Board(7, 6));
+            System.out.printf("  %d threads: %d%n", threads, player.getNodeCount());
+            player.setThreads(1);
+        }
+    }
+
+    /**
+     * Plays one game between the MCTS player and the AlphaBeta player.
+     *
+     * @param mctsFirst Whether the MCTS player moves first.
+     * @return 0 if the MCTS player won, 1 if the AlphaBeta player won, 2 for a draw.
+     */
+    private static int playGame(int width, int height, int gameN, int depth, boolean mctsFirst) {
+        int mctsId = mctsFirst ? 1 : 2;
+        MCTSPlayer mctsPlayer = new MCTSPlayer(mctsId, gameN, 0, new CustomHeuristic(gameN));
+        mctsPlayer.setTimeLimit(timeLimit);
+        AlphaBetaPlayer alphaBetaPlayer = new AlphaBetaPlayer(3 - mctsId, gameN, depth, new CustomHeuristic(gameN));
+        alphaBetaPlayer.setMoveOrdering(true);
+        alphaBetaPlayer.setTranspositionTable(new TranspositionTable(20));
+        PlayerController[] players = mctsFirst
+                ? new PlayerController[] {mctsPlayer, alphaBetaPlayer}
+                : new PlayerController[] {alphaBetaPlayer, mctsPlayer};
+
+        Board board = new Board(width, height);
+        int currentPlayer = 0;
+        while (board.winning(gameN) == 0) {
+            board.play(players[currentPlayer].makeMove(board), players[currentPlayer].playerId);
+            if (players[currentPlayer] == alphaBetaPlayer) {
+                alphaBetaTime += alphaBetaPlayer.getTimeUsed();
+                alphaBetaMoves++;
+            }
+            currentPlayer = (currentPlayer == 0) ? 1 : 0;
+        }
+
+        int winner = board.winning(gameN);
+        return (winner < 0) ? 2 : (winner == mctsId) ? 0 : 1;
+    }
+}
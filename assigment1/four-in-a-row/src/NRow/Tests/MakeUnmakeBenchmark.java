@@ -0,0 +1,153 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import NRow.Board;
+import NRow.TreeNode;
+import NRow.Heuristics.CustomHeuristic;
+import NRow.Players.*;
+
+/**
+ * The MakeUnmakeBenchmark class compares searching on one board with play/undo against searching
+ * on cloned boards, in nodes per second and bytes allocated.
+ * First it walks all positions up to a fixed depth both ways, then it lets the players choose
+ * moves for the same random positions: the MinMaxPlayer searches with play/undo, the
+ * AlphaBetaPlayer both ways, with and without building its tree of cloned boards first.
+ */
+public class MakeUnmakeBenchmark {
+    private static int gameN = 4;
+    private static int boardWidth = 7;
+    private static int boardHeight = 6;
+    private static int positions = 20;
+
+    /**
+     * The main method of the MakeUnmakeBenchmark class.
+     */
+    public static void main(String[] args) {
+        // Warm up the JIT before measuring
+        for (int i = 0; i < 3; i++) {
+            walkClone(new TreeNode(new Board(boardWidth, boardHeight), -1), 5, 1);
+            walkInPlace(new Board(boardWidth, boardHeight), 5, 1);
+        }
+
+        System.out.println("Walk of all positions on a " + boardWidth + "x" + boardHeight + " board:");
+        for (int depth = 5; depth <= 7; depth++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            long nodes = walkClone(new TreeNode(new Board(boardWidth, boardHeight), -1), depth, 1);
+            report("clone depth " + depth, nodes, System.nanoTime() - start, allocatedBytes() - bytes);
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            nodes = walkInPlace(new Board(boardWidth, boardHeight), depth, 1);
+            report("play/undo depth " + depth, nodes, System.nanoTime() - start, allocatedBytes() - bytes);
+        }
+
+        System.out.println();
+        System.out.println("Players choosing a move for " + positions + " random positions:");
+        Board[] boards = randomPositions(positions, 8, new Random(42));
+        for (int depth = 4; depth <= 6; depth++) {
+            measure("MinMaxPlayer (play/undo) depth " + depth, new MinMaxPlayer(1, gameN, depth, new CustomHeuristic(gameN)), boards);
+            measure("AlphaBetaPlayer (clone) depth " + depth, new AlphaBetaPlayer(1, gameN, depth, new CustomHeuristic(gameN), true), boards);
+            measure("AlphaBetaPlayer (play/undo) depth " + depth, new AlphaBetaPlayer(1, gameN, depth, new CustomHeuristic(gameN)), boards);
+        }
+    }
+
+    /**
+     * Expands all positions below a node by cloning the board for every child, the way the
+     * players build their game tree.
+     * @return the number of nodes visited
+     */
+    private static long walkClone(TreeNode node, int depth, int player) {
+        if (depth == 0 || node.getBoard().winning(gameN) != 0) {
+            return 1;
+        }
+        long nodes = 1;
+        for (int move = 0; move < node.getBoard().width; move++) {
+            if (node.getBoard().isValid(move)) {
+                TreeNode child = new TreeNode(node.getBoard().getNewBoard(move, player), move);
+                node.addChild(child);
+                nodes += walkClone(child, depth - 1, 3 - player);
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Visits all positions below the current state of the board by playing and taking back moves.
+     * @return the number of nodes visited
+     */
+    private static long walkInPlace(Board board, int depth, int player) {
+        if (depth == 0 || board.winning(gameN) != 0) {
+            return 1;
+        }
+        long nodes = 1;
+        for (int move = 0; move < board.width; move++) {
+            if (board.play(move, player)) {
+                nodes += walkInPlace(board, depth - 1, 3 - player);
+                board.undo();
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Lets a player choose a move for every board and prints the node rate and allocation per move.
+     */
+    private static void measure(String name, PlayerController player, Board[] boards) {
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (Board board : boards) {
+            player.makeMove(board);
+        }
+        report(name, player.getNodeCount(), System.nanoTime() - start, allocatedBytes() - bytes);
+        double perMove = (allocatedBytes() - bytes) / (double) boards.length;
+        System.out.printf("    %.0f bytes per move%n", perMove);
+    }
+
+    /**
+     * Creates boards with a number of random moves played, without a winner.
+     */
+    private static Board[] randomPositions(int count, int moves, Random random) {
+        Board[] boards = new Board[count];
+        for (int i = 0; i < count; i++) {
+            Board board;
+            do {
+                board = new Board(boardWidth, boardHeight);
+                for (int m = 0; m < moves; m++) {
+                    int move;
+                    do {
+                        move = random.nextInt(boardWidth);
+                    } while (!board.isValid(move));
+                    board.play(move, m % 2 + 1);
+                }
+            } while (board.winning(gameN) != 0);
+            boards[i] = board;
+        }
+        return boards;
+    }
+
+    private static void report(String name, long nodes, long nanos, long bytes) {
+        System.out.printf("  %-40s %10d nodes %10.0f nodes/s %8.1f bytes/node%n", name, nodes, nodes / (nanos / 1e9),
+                bytes / (double) nodes);
+    }
+
+    /**
+     * @return the number of bytes allocated by this thread so far, or 0 if the JVM can not tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import java.util.Random;
+
+import NRow.Board;
+import NRow.Players.*;
+import NRow.Heuristics.*;
+
+/**
+ * The MoveOrderingTest class is responsible for testing the effect of move ordering on the AlphaBeta player.
+ * For several board sizes it lets players choose a move for the same random positions at a fixed depth,
+ * with and without move ordering and transposition table, and prints the number of searched nodes.
+ */
+public class MoveOrderingTest {
+    private static int gameN = 4;
+    private static int positions = 20;
+
+    /**
+     * The main method of the MoveOrderingTest class.
+     * It compares the searched nodes for every board size and depth.
+     */
+    public static void main(String[] args) {
+        int[][] boardSizes = {{7, 6}, {9, 7}, {11, 9}, {15, 13}};
+        int[][] depths = {{10, 11}, {8, 9}, {7, 8}, {6, 7}};
+
+        for (int i = 0; i < boardSizes.length; i++) {
+            int width = boardSizes[i][0];
+            int height = boardSizes[i][1];
+            Board[] boards = randomPositions(width, height, new Random(42));
+
+            for (int depth : depths[i]) {
+                System.out.println("Board Size " + width + "x" + height + ", depth " + depth + ":");
+                long plain = countNodes(boards, depth, false, false);
+                report("left to right", plain, plain);
+                report("move ordering", countNodes(boards, depth, true, false), plain);
+                report("transposition table", countNodes(boards, depth, false, true), plain);
+                report("move ordering and table", countNodes(boards, depth, true, true), plain);
+                System.out.println();
+            }
+        }
+    }
+
+    /**
+     * Lets one player choose a move for every board.
+     *
+     * @return The total number of nodes the player searched.
+     */
+    private static long countNodes(Board[] boards, int depth, boolean moveOrdering, boolean useTable) {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(1, gameN, depth, new CustomHeuristic(gameN));
+        player.setMoveOrdering(moveOrdering);
+        if (useTable) {
+            player.setTranspositionTable(new TranspositionTable(20));
+        }
+        for (Board board : boards) {
+            player.makeMove(board);
+        }
+        return player.getNodeCount();
+    }
+
+    private static void report(String name, long nodes, long plain) {
+        System.out.printf("  %-25s %12d nodes %6.1f%%%n", name, nodes, 100.0 * nodes / plain);
+    }
+
+    /**
+     * Creates boards with a few random moves played, without a winner, where player 1 is to move.
+     */
+    private static Board[] randomPositions(int width, int height, Random random) {
+        Board[] boards = new Board[positions];
+        for (int i = 0; i < positions; i++) {
+            Board board;
+            do {
+                board = new Board(width, height);
+                for (int m = 0; m < 6; m++) {
+                    int move;
+                    do {
+                        move = random.nextInt(width);
+                    } while (!board.isValid(move));
+                    board.play(move, m % 2 + 1);
+                }
+            } while (board.winning(gameN) != 0);
+            boards[i] = board;
+        }
+        return boards;
+    }
+}
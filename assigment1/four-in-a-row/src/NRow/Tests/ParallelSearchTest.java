@@ -0,0 +1,104 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import NRow.Board;
+import NRow.Players.*;
+import NRow.Heuristics.*;
+
+/**
+ * The ParallelSearchTest class is responsible for testing how the AlphaBeta player scales with the number of threads.
+ * For a few standard positions it searches to a fixed depth with 1, 2, 4, 8 and 16 threads and prints the time to
+ * reach the depth, the searched nodes per second of all threads together, and the speedup over one thread.
+ * The speedup only means something with at least as many processors as threads, rows with more threads than
+ * processors are marked.
+ * The move and its value are printed and compared with one thread, as the helpers must not change them.
+ * It also searches every position twice with one thread, to check that the single threaded search is deterministic.
+ */
+public class ParallelSearchTest {
+    private static int gameN = 4;
+    private static int boardWidth = 7;
+    private static int boardHeight = 6;
+    private static int depth = 16;
+
+    /**
+     * Standard positions as the columns played from the empty board, starting with player 1.
+     */
+    private static String[] positions = {"", "3", "3323", "33224", "3243321"};
+
+    /**
+     * The main method of the ParallelSearchTest class.
+     */
+    public static void main(String[] args) {
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.println("Available processors: " + processors);
+
+        // Warm up the JIT before measuring
+        search(createBoard(positions[0]), 1, depth - 2);
+
+        for (String position : positions) {
+            Board board = createBoard(position);
+            System.out.println("Position \"" + position + "\", depth " + depth + ":");
+            long[] first = search(board, 1, depth);
+            long[] second = search(board, 1, depth);
+            System.out.println("  one thread deterministic: " + (first[0] == second[0] && first[1] == second[1] && first[3] == second[3]));
+
+            double single = 0;
+            for (int threads : threadCounts) {
+                long[] result = search(board, threads, depth);
+                double seconds = result[2] / 1e9;
+                if (threads == 1) {
+                    single = seconds;
+                }
+                boolean same = result[0] == first[0] && result[3] == first[3];
+                System.out.printf("  %2d threads: move %d, value %s%s, %7.3f s to depth, %10.0f nodes/s, speedup %.2f%s%n",
+                        threads, result[0] + 1, valueName(result[3]), same ? "" : " (differs from one thread)", seconds,
+                        result[1] / seconds, single / seconds, threads > processors ? " (more threads than processors)" : "");
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Lets a new player search a board.
+     *
+     * @return The chosen move, the number of searched nodes, the time in nanoseconds and the value of the move.
+     */
+    private static long[] search(Board board, int threads, int depth) {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(1 + board.getPieceCount() % 2, gameN, depth, new CustomHeuristic(gameN));
+        player.setTranspositionTable(new TranspositionTable(20));
+        player.setMoveOrdering(true);
+        player.setThreads(threads);
+        long start = System.nanoTime();
+        int move = player.makeMove(board);
+        long time = System.nanoTime() - start;
+        player.setThreads(1);
+        return new long[] {move, player.getNodeCount(), time, player.getMoveValue()};
+    }
+
+    /**
+     * @return The value of a move, with the values of won and lost positions written as win and loss.
+     */
+    private static String valueName(long value) {
+        if (value == Integer.MAX_VALUE) {
+            return "win";
+        } else if (value == Integer.MIN_VALUE) {
+            return "loss";
+        }
+        return String.valueOf(value);
+    }
+
+    private static Board createBoard(String moves) {
+        Board board = new Board(boardWidth, boardHeight);
+        for (int i = 0; i < moves.length(); i++) {
+            board.play(moves.charAt(i) - '0', i % 2 + 1);
+        }
+        return board;
+    }
+}
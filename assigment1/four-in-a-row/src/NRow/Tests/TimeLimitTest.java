@@ -0,0 +1,69 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import NRow.Board;
+import NRow.Players.*;
+import NRow.Heuristics.*;
+
+/**
+ * The TimeLimitTest class is responsible for testing the players with a time budget per move instead of a fixed depth.
+ * It plays games between a MinMax and an AlphaBeta player and prints for every move the depth the player reached
+ * within its time and the time it used, to show how the depth changes between the opening and the endgame.
+ */
+public class TimeLimitTest {
+    private static int gameN = 4;
+    private static int boardWidth = 7;
+    private static int boardHeight = 6;
+
+    /**
+     * The main method of the TimeLimitTest class.
+     * It plays a game for different time limits per move.
+     */
+    public static void main(String[] args) {
+        long[] timeLimits = {10, 100, 500};
+
+        for (long timeLimit : timeLimits) {
+            System.out.println("Time limit " + timeLimit + " ms per move:");
+            playGame(timeLimit);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Plays one game and prints the depth and time of every move.
+     *
+     * @param timeLimit The time per move in milliseconds.
+     */
+    private static void playGame(long timeLimit) {
+        MinMaxPlayer minMaxPlayer = new MinMaxPlayer(1, gameN, 1, new CustomHeuristic(gameN));
+        AlphaBetaPlayer alphaBetaPlayer = new AlphaBetaPlayer(2, gameN, 1, new CustomHeuristic(gameN));
+        alphaBetaPlayer.setTranspositionTable(new TranspositionTable(20));
+        PlayerController[] players = { minMaxPlayer, alphaBetaPlayer };
+        for (PlayerController player : players) {
+            player.setTimeLimit(timeLimit);
+        }
+
+        Board board = new Board(boardWidth, boardHeight);
+        int currentPlayer = 0;
+        int moveNumber = 1;
+        while (board.winning(gameN) == 0) {
+            PlayerController player = players[currentPlayer];
+            int move = player.makeMove(board);
+            board.play(move, player.playerId);
+            System.out.printf("Move %2d: player %s plays column %d, depth %2d in %3d ms%n", moveNumber, player, move + 1,
+                    player.getDepthReached(), player.getTimeUsed());
+            currentPlayer = (currentPlayer == 0) ? 1 : 0;
+            moveNumber++;
+        }
+
+        System.out.println(board);
+        int winner = board.winning(gameN);
+        System.out.println((winner < 0) ? "Game is a draw!" : "Player " + players[winner - 1] + " won!");
+    }
+}
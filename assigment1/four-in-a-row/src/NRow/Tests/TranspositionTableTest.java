@@ -0,0 +1,64 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow.Tests;
+
+import NRow.Players.*;
+import NRow.Game;
+import NRow.Heuristics.*;
+
+/**
+ * The TranspositionTableTest class is responsible for testing the effect of a transposition table on the AlphaBeta player.
+ * It plays the same games with and without a table, so the number of evaluations, the searched nodes and the hit rate
+ * of the table can be compared. The table does not change the chosen moves, so both games end the same.
+ */
+public class TranspositionTableTest {
+    private static int gameN = 4;
+    private static int boardWidth = 7;
+    private static int boardHeight = 6;
+    private static int tableSizeLog2 = 20;
+
+    /**
+     * The main method of the TranspositionTableTest class.
+     * It plays a game with and without transposition tables for different depths.
+     */
+    public static void main(String[] args) {
+        int[] depths = {5, 7, 9};
+
+        for (int depth : depths) {
+            for (boolean useTable : new boolean[] {false, true}) {
+                PlayerController[] players = createPlayers(depth, useTable);
+
+                System.out.println("Depth " + depth + (useTable ? " with" : " without") + " transposition table:");
+                long start = System.nanoTime();
+                Game game = new Game(gameN, boardWidth, boardHeight, players);
+                game.startGame();
+                System.out.printf("Time: %.3f s%n%n", (System.nanoTime() - start) / 1e9);
+            }
+        }
+    }
+
+    /**
+     * Creates two AlphaBeta players, with a transposition table of their own if asked for.
+     *
+     * @param depth The depth level to set for the AlphaBeta players.
+     * @param useTable Whether the players use a transposition table.
+     * @return An array of player controllers for the game.
+     */
+    private static PlayerController[] createPlayers(int depth, boolean useTable) {
+        AlphaBetaPlayer alphaBetaPlayer1 = new AlphaBetaPlayer(1, gameN, depth, new CustomHeuristic(gameN));
+        AlphaBetaPlayer alphaBetaPlayer2 = new AlphaBetaPlayer(2, gameN, depth, new CustomHeuristic(gameN));
+        if (useTable) {
+            alphaBetaPlayer1.setTranspositionTable(new TranspositionTable(tableSizeLog2));
+            alphaBetaPlayer2.setTranspositionTable(new TranspositionTable(tableSizeLog2));
+        }
+
+        PlayerController[] players = { alphaBetaPlayer1, alphaBetaPlayer2 };
+
+        return players;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Artificial Intelligence: Principles & Techniques
+ * Authors: Amanda Enhörning (s1128126) and Jessica Borg (s1129470)
+ * Assignment 1: N-in-a-Row
+ * 6 October 2023
+ */
+
+package NRow;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * All lines of N cells in a row on a board of a given size: vertical, horizontal, and both diagonals.
+ * Every line is stored as the indices of its cells, with cell (x, y) at index x * height + y like in
+ * Board.getBoardState, and as a bitboard in the layout of Board. For every cell it also knows the lines
+ * through it, so a win check after a move only has to look at those.
+ *
+ * The lines only depend on N and the size of the board, so they are made once per size and shared.
+ * The arrays that are handed out must not be changed.
+ */
+public class WinningLines {
+  private static final Map<Long, WinningLines> cache = new ConcurrentHashMap<>();
+
+  public final int gameN;
+  public final int width;
+  public final int height;
+  private final int[][] lines; // the cells of every line
+  private final long[][] masks; // every line as a bitboard
+  private final int[][] cellLines; // the lines through every cell
+
+  /**
+   * @param gameN N in a row required to win
+   * @param width
+   * @param height
+   * @return the lines of a board of this size, made the first time they are asked for
+   */
+  public static WinningLines get(int gameN, int width, int height) {
+    long key = ((long) gameN << 40) | ((long) width << 20) | height;
+    WinningLines lines = cache.get(key);
+    if (lines == null) {
+      lines = cache.computeIfAbsent(key, k -> new WinningLines(gameN, width, height));
+    }
+    return lines;
+  }
+
+  private WinningLines(int gameN, int width, int height) {
+    this.gameN = gameN;
+    this.width = width;
+    this.height = height;
+    int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { -1, 1 } };
+
+    int count = 0;
+    for (int[] dir : directions) {
+      count += Math.max(0, width - (gameN - 1) * Math.abs(dir[0])) * Math.max(0, height - (gameN - 1) * dir[1]);
+    }
+    lines = new int[gameN > 0 ? count : 0][];
+    masks = new long[lines.length][];
+
+    int words = (width * (height + 1) + 63) / 64;
+    int[] linesPerCell = new int[width * height];
+    int line = 0;
+    for (int[] dir : directions) {
+      for (int x = 0; x < width; x++) {
+        for (int y = 0; y < height; y++) {
+          int endX = x + (gameN - 1) * dir[0];
+          int endY = y + (gameN - 1) * dir[1];
+          if (line == lines.length || endX < 0 || endX >= width || endY >= height) {
+            continue;
+          }
+          lines[line] = new int[gameN];
+          masks[line] = new long[words];
+          for (int d = 0; d < gameN; d++) {
+            int cellX = x + d * dir[0];
+            int cellY = y + d * dir[1];
+            int bit = cellX * (height + 1) + (height - 1 - cellY);
+            lines[line][d] = cellX * height + cellY;
+            masks[line][bit >>> 6] |= 1L << bit;
+            linesPerCell[cellX * height + cellY]++;
+          }
+          line++;
+        }
+      }
+    }
+
+    cellLines = new int[width * height][];
+    for (int cell = 0; cell < cellLines.length; cell++) {
+      cellLines[cell] = new int[linesPerCell[cell]];
+      linesPerCell[cell] = 0;
+    }
+    for (line = 0; line < lines.length; line++) {
+      for (int cell : lines[line]) {
+        cellLines[cell][linesPerCell[cell]++] = line;
+      }
+    }
+  }
+
+  /**
+   * @return the number of lines
+   */
+  public int getLineCount() {
+    return lines.length;
+  }
+
+  /**
+   * @param line
+   * @return the indices x * height + y of the cells of a line
+   */
+  public int[] getLine(int line) {
+    return lines[line];
+  }
+
+  /**
+   * @param line
+   * @return the bitboard of a line, in the layout of Board
+   */
+  public long[] getMask(int line) {
+    return masks[line];
+  }
+
+  /**
+   * @param cell index x * height + y of a cell
+   * @return the lines through a cell
+   */
+  public int[] getLinesThrough(int cell) {
+    return cellLines[cell];
+  }
+}
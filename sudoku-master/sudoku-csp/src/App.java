@@ -7,19 +7,28 @@
  */
 
 public class App {
+    /**
+     * Without arguments, solves one sudoku. With arguments, solves a file with one puzzle per line:
+     * App <input file> <output file> [threads], using all processors if the number of threads is not given.
+     */
     public static void main(String[] args) throws Exception {
-        start("sudoku-csp/Sudoku5.txt");
+        if (args.length >= 2) {
+            int threads = (args.length >= 3) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            new BatchSolver(threads).solveFile(args[0], args[1]);
+        } else {
+            start("sudoku-csp/Sudoku5.txt");
+        }
     }
 
     /**
-     * Start AC-3 using the sudoku from the given filepath, and reports whether the sudoku could be solved or not, and how many steps the algorithm performed
+     * Start the backtracking search (MAC) using the sudoku from the given filepath, and reports whether the sudoku could be solved or not, and how many steps the algorithm performed
      * 
      * @param filePath
      */
     public static void start(String filePath){
         Game game1 = new Game(new Sudoku(filePath));
         game1.showSudoku();
-        game1.verifyAC3Output();
+        game1.verifyMACOutput();
         game1.showSudoku();
     }
 }
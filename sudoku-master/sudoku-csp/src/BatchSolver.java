@@ -0,0 +1,248 @@
+/*
+ * Artificial Intelligence: Principles & Techniques
+ * Assignment 2: Sudoku
+ * 16/11-23
+ * Amanda Enhörning, s1128126
+ * Jessica Borg, s1129470
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The BatchSolver class solves files with many puzzles, one per line, like the collections of 9x9 puzzles
+ * with 81 characters per line. A reader thread, a pool of solver threads and a writer work on the puzzles
+ * at the same time. Only a fixed number of puzzles can be between the reader and the writer, so the reader
+ * waits when the solvers or the writer fall behind, and the memory use does not grow with the size of the file.
+ *
+ * Every puzzle gets a line in the output file, in the order of the input: the solution, or the puzzle if it
+ * could not be solved, the status, the number of iterations and processed arcs, and the time in microseconds.
+ */
+public class BatchSolver {
+    private static final Job END = new Job(-1, null); // tells the solvers and the writer that there are no more puzzles
+    private static final long REPORT_INTERVAL = 5_000_000_000L; // nanoseconds between progress reports
+
+    private final int threads;
+    private final int capacity; // the most puzzles between the reader and the writer
+    private BlockingQueue<Job> puzzles;
+    private BlockingQueue<Job> solutions;
+    private Semaphore inFlight;
+    private volatile IOException readError;
+
+    // Totals of the last file
+    private long puzzleCount;
+    private long solvedCount;
+    private long unsolvableCount;
+    private long invalidCount;
+    private long errorCount;
+
+    /**
+     * A puzzle on its way through the pipeline, with its result once it is solved.
+     */
+    private static class Job {
+        final long number;
+        final String puzzle;
+        String solution;
+        String status;
+        int iterations;
+        int processedArcs;
+        long time; // nanoseconds
+
+        Job(long number, String puzzle) {
+            this.number = number;
+            this.puzzle = puzzle;
+        }
+    }
+
+    /**
+     * Constructs a BatchSolver that solves with the given number of threads.
+     *
+     * @param threads The number of solver threads.
+     */
+    BatchSolver(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive, not " + threads);
+        }
+        this.threads = threads;
+        this.capacity = 256 * threads;
+    }
+
+    /**
+     * Solves all puzzles of a file and writes the results to another file. Empty lines and lines starting
+     * with # are skipped. Progress is printed every few seconds, and a summary at the end.
+     *
+     * @param inputFile The name of the file with the puzzles, in a format read by Sudoku.parseSudoku.
+     * @param outputFile The name of the file to write the results to.
+     * @throws IOException if a file can not be read or written.
+     * @throws InterruptedException if the thread is interrupted while waiting for the solvers.
+     */
+    public void solveFile(String inputFile, String outputFile) throws IOException, InterruptedException {
+        // Every puzzle needs a permit until it is written, so the queues never hold more than capacity puzzles
+        puzzles = new ArrayBlockingQueue<>(capacity + threads);
+        solutions = new ArrayBlockingQueue<>(capacity + threads);
+        inFlight = new Semaphore(capacity);
+        readError = null;
+        puzzleCount = 0;
+        solvedCount = 0;
+        unsolvableCount = 0;
+        invalidCount = 0;
+        errorCount = 0;
+
+        long start = System.nanoTime();
+        Thread reader = new Thread(() -> read(inputFile), "BatchSolver reader");
+        Thread[] solvers = new Thread[threads];
+        reader.start();
+        for (int i = 0; i < threads; i++) {
+            solvers[i] = new Thread(this::solvePuzzles, "BatchSolver solver " + (i + 1));
+            solvers[i].start();
+        }
+
+        try {
+            write(outputFile, start);
+        } finally {
+            // Stops the other threads if the writer failed, and does nothing if they are done
+            reader.interrupt();
+            for (Thread solver : solvers) {
+                solver.interrupt();
+            }
+            reader.join();
+            for (Thread solver : solvers) {
+                solver.join();
+            }
+        }
+        if (readError != null) {
+            throw readError;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Solved %d of %d puzzles (%d unsolvable, %d invalid, %d errors) in %.2f s with %d threads: %.0f puzzles/s%n",
+                solvedCount, puzzleCount, unsolvableCount, invalidCount, errorCount, seconds, threads, puzzleCount / seconds);
+    }
+
+    /**
+     * Reads the puzzles and hands them to the solvers, waiting while too many puzzles are not written yet.
+     */
+    private void read(String inputFile) {
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8)) {
+            long number = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    inFlight.acquire();
+                    puzzles.put(new Job(number++, line));
+                }
+            }
+        } catch (IOException e) {
+            readError = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                puzzles.offer(END); // there is always room, since the permits keep space for these
+            }
+        }
+    }
+
+    /**
+     * Solves puzzles until the reader is done, and hands them to the writer.
+     */
+    private void solvePuzzles() {
+        try {
+            Job job;
+            while ((job = puzzles.take()) != END) {
+                solve(job);
+                solutions.put(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            solutions.offer(END);
+        }
+    }
+
+    /**
+     * Solves one puzzle with the MAC search, without printing. A puzzle that makes the solver fail gets the
+     * status error, so its solver thread keeps running and the writer still gets a line for it.
+     */
+    private static void solve(Job job) {
+        long start = System.nanoTime();
+        try {
+            Sudoku sudoku = new Sudoku(Sudoku.parseSudoku(Collections.singletonList(job.puzzle)));
+            Game game = new Game(sudoku);
+            boolean solved = game.solveMACQuietly();
+            job.solution = solved ? sudoku.toLineString() : job.puzzle;
+            job.status = solved ? "solved" : "unsolvable";
+            job.iterations = game.getIterations();
+            job.processedArcs = game.getProcessedArcs();
+        } catch (IllegalArgumentException e) {
+            job.solution = job.puzzle;
+            job.status = "invalid";
+        } catch (RuntimeException e) {
+            job.solution = job.puzzle;
+            job.status = "error";
+        }
+        job.time = System.nanoTime() - start;
+    }
+
+    /**
+     * Writes the solved puzzles in the order of the input, and gives back their permits to the reader.
+     */
+    private void write(String outputFile, long start) throws IOException, InterruptedException {
+        Map<Long, Job> waiting = new HashMap<>(); // solved puzzles that come after one that is not solved yet
+        long next = 0;
+        int doneSolvers = 0;
+        long lastReport = start;
+
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8)) {
+            out.write("solution,status,iterations,processed arcs,microseconds");
+            out.newLine();
+            while (doneSolvers < threads) {
+                Job job = solutions.take();
+                if (job == END) {
+                    doneSolvers++;
+                    continue;
+                }
+                waiting.put(job.number, job);
+
+                while ((job = waiting.remove(next)) != null) {
+                    out.write(job.solution + "," + job.status + "," + job.iterations + "," + job.processedArcs
+                            + "," + job.time / 1000);
+                    out.newLine();
+                    count(job);
+                    next++;
+                    inFlight.release();
+                }
+
+                long now = System.nanoTime();
+                if (now - lastReport >= REPORT_INTERVAL) {
+                    System.out.printf("%d puzzles, %.0f puzzles/s%n", puzzleCount, puzzleCount / ((now - start) / 1e9));
+                    lastReport = now;
+                }
+            }
+        }
+    }
+
+    private void count(Job job) {
+        puzzleCount++;
+        if (job.status.equals("solved")) {
+            solvedCount++;
+        } else if (job.status.equals("unsolvable")) {
+            unsolvableCount++;
+        } else if (job.status.equals("invalid")) {
+            invalidCount++;
+        } else {
+            errorCount++;
+        }
+    }
+}
@@ -10,8 +10,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Field {
+  public static final int MAX_VALUES = 64; // the most values a domain bitmask can hold
+
   private int value = 0;
-  private List<Integer> domain;
+  private long domain; // bit v - 1 is set if value v is still in the domain
+  private long fullDomain; // the domain of an unknown field: the values 1 to the size of the board
   private List<Field> neighbours;
 
   /*
@@ -22,17 +25,29 @@ public class Field {
 
   // Constructor in case the field is unknown
   Field() {
-    this.domain = new ArrayList<>(9);
-    for (int i = 1; i < 10; i++)
-        this.domain.add(i);
-
-    this.neighbours = new ArrayList<>();
+    this(0, 9);
   }
 
   // Constructor in case the field is known, i.e., it contains a value
   Field(int initValue) {
+    this(initValue, 9);
+    this.domain = 0;
+  }
+
+  /**
+   * Constructor for a field on a board with the given number of values, e.g. 16 for a 16x16 sudoku.
+   * The domain starts with all values, also if the field is known.
+   *
+   * @param initValue the value of the field, or 0 if it is unknown
+   * @param valueCount the number of values, at most MAX_VALUES
+   */
+  Field(int initValue, int valueCount) {
+    if (valueCount < 1 || valueCount > MAX_VALUES) {
+      throw new IllegalArgumentException("A field can have 1 to " + MAX_VALUES + " values, not " + valueCount);
+    }
     this.value = initValue;
-    this.domain = new ArrayList<>();
+    this.fullDomain = (valueCount == MAX_VALUES) ? -1L : (1L << valueCount) - 1;
+    this.domain = fullDomain;
     this.neighbours = new ArrayList<>();
   }
 
@@ -74,12 +89,44 @@ public class Field {
    * ==================
    */
 
+  /**
+   * Builds a list of the values in the domain, from small to large.
+   * The solvers use the bitmask functions below instead, which do not allocate.
+   *
+   * @return a new list with the domain values
+   */
   public List<Integer> getDomain() {
+    List<Integer> values = new ArrayList<>(getDomainSize());
+    for (long bits = domain; bits != 0; bits &= bits - 1) {
+      values.add(Long.numberOfTrailingZeros(bits) + 1);
+    }
+    return values;
+  }
+
+  /**
+   * Gets the domain as a bitmask, where bit v - 1 is set if value v is in the domain.
+   * Iterate over the values with {@code for (long bits = getDomainBits(); bits != 0; bits &= bits - 1)},
+   * where {@code Long.numberOfTrailingZeros(bits) + 1} is the next value.
+   *
+   * @return the domain bitmask
+   */
+  public long getDomainBits() {
     return domain;
   }
 
   public int getDomainSize() {
-    return domain.size();
+    return Long.bitCount(domain);
+  }
+
+  public boolean domainContains(int value) {
+    return (domain & bit(value)) != 0;
+  }
+
+  /**
+   * @return the smallest value in the domain, or 65 if the domain is empty
+   */
+  public int getSmallestDomainValue() {
+    return Long.numberOfTrailingZeros(domain) + 1;
   }
 
    /**
@@ -89,23 +136,49 @@ public class Field {
    * @return true if the value was removed
    */
   public boolean removeFromDomain(int value) {
-    boolean b = this.domain.remove(Integer.valueOf(value));
+    boolean b = (domain & bit(value)) != 0;
+    domain &= ~bit(value);
 
     // If there is only one value left in the domain, sets the value of the field to the last domain value.
-    if (domain.size() == 1) {
-      setValue(domain.get(0));
+    if (domain != 0 && (domain & (domain - 1)) == 0) {
+      setValue(getSmallestDomainValue());
     }
     
     return b;
   }
 
+  /**
+   * Assigns a value to the field, leaving only that value in the domain.
+   *
+   * @param value
+   */
+  void assign(int value) {
+    this.value = value;
+    this.domain = bit(value);
+  }
+
+  /**
+   * Puts back a value and domain saved before, when a search takes back its changes.
+   *
+   * @param value
+   * @param domain the domain bitmask
+   */
+  void restore(int value, long domain) {
+    this.value = value;
+    this.domain = domain;
+  }
+
   public void resetField() {
     value = 0;
-    domain.clear();
-    for (int i = 1; i <= 9; i++) {
-        domain.add(i);
-    }
-}
+    domain = fullDomain;
+  }
+
+  /**
+   * @return the domain bit of a value, or 0 for values that can not be in a domain, like 0 for an empty field
+   */
+  private static long bit(int value) {
+    return (value >= 1 && value <= MAX_VALUES) ? 1L << (value - 1) : 0;
+  }
 
 
   /*
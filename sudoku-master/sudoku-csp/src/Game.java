@@ -7,6 +7,7 @@
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,10 +17,40 @@ import java.util.Queue;
  * The Game class represents a Sudoku game and provides methods to solve the puzzle using different algorithms.
  */
 public class Game {
+    private static final int FIRST_RESTART = 100; // the number of iterations before the first restart of the MAC search
+
     private Sudoku sudoku;
     private int iterations = 0;
     private int processedArcs = 0;
 
+    // The fields by their index, and the tables of their neighbours and units
+    private Field[] fields;
+    private int[][] neighbours; // the indices of the neighbours of every field, shared with other games
+    private int[][] units; // the rows, columns and boxes, in which every value has to appear once
+    private int[][] fieldUnits; // the units every field is in
+
+    // State of the backtracking search
+    private long allValues; // the domain bits of all values
+    private int[] queue; // the fields that got a value and still have to be propagated
+    private int queueHead;
+    private int queueSize;
+    private boolean[] changedUnits; // the units with a changed domain, to check for hidden singles
+    private int[] changedUnitList;
+    private int changedUnitCount;
+    private int[] trailFields; // the fields changed by the search, with their value and domain before the change
+    private int[] trailValues;
+    private long[] trailDomains;
+    private int trailSize;
+    private int[][] valueBuffers; // the values to try per search depth
+    private long[] valueKeys = new long[64]; // work space to order the values of a field
+    private int[] conflicts; // how often every field was part of a dead end
+    private long nodeLimit; // the number of iterations after which the search starts again
+    private boolean restart;
+
+    // State of AC-3 with the Degree heuristic
+    private int[] degrees; // the number of unassigned neighbours of every field
+    private IndexedWorklist worklist;
+
     /**
      * Constructs a Game object with the given Sudoku instance.
      *
@@ -56,6 +87,20 @@ public class Game {
         processedArcs++;
     }
 
+    /**
+     * @return The number of iterations performed so far.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return The number of arcs processed so far.
+     */
+    public int getProcessedArcs() {
+        return processedArcs;
+    }
+
     /**
      * Help-method to print the number of iterations and processed arcs for the specified algorithm
      * 
@@ -75,51 +120,37 @@ public class Game {
      */
     public boolean validSolution() {
         Field[][] board = sudoku.getBoard();
-
-        // Check rows
-        for (int i = 0; i < 9; i++) {
-            boolean[] rowSet = new boolean[9];
-            for (int j = 0; j < 9; j++) {
-                int value = board[i][j].getValue();
-                if (value != 0) {
-                    rowSet[value - 1] = true;
-                } else {
+        int size = board.length;
+        int boxSize = sudoku.getBoxSize();
+
+        for (int unit = 0; unit < size; unit++) {
+            boolean[] rowSet = new boolean[size];
+            boolean[] colSet = new boolean[size];
+            boolean[] boxSet = new boolean[size];
+            for (int k = 0; k < size; k++) {
+                // Field k of row, column and box number unit
+                if (!addToSet(rowSet, board[unit][k]) || !addToSet(colSet, board[k][unit])
+                        || !addToSet(boxSet, board[unit / boxSize * boxSize + k / boxSize][unit % boxSize * boxSize + k % boxSize])) {
                     return false;
                 }
             }
         }
 
-        // Check columns
-        for (int j = 0; j < 9; j++) {
-            boolean[] colSet = new boolean[9];
-            for (int i = 0; i < 9; i++) {
-                int value = board[i][j].getValue();
-                if (value != 0) {
-                    colSet[value - 1] = true;
-                } else {
-                    return false;
-                }
-            }
-        }
+        return true; // Sudoku is a valid solution
+    }
 
-        // Check 3x3 subgrid
-        for (int boxRow = 0; boxRow < 9; boxRow += 3) {
-            for (int boxCol = 0; boxCol < 9; boxCol += 3) {
-                boolean[] boxSet = new boolean[9];
-                for (int i = boxRow; i < boxRow + 3; i++) {
-                    for (int j = boxCol; j < boxCol + 3; j++) {
-                        int value = board[i][j].getValue();
-                        if (value != 0) {
-                            boxSet[value - 1] = true;
-                        } else {
-                            return false;
-                        }
-                    }
-                }
-            }
+    /**
+     * Adds the value of a field to the values seen in a row, column or box.
+     *
+     * @return false if the field has no value, or the value was seen before.
+     */
+    private boolean addToSet(boolean[] set, Field field) {
+        int value = field.getValue();
+        if (value < 1 || value > set.length || set[value - 1]) {
+            return false;
         }
-
-        return true; // Sudoku is a valid solution
+        set[value - 1] = true;
+        return true;
     }
 
     /**
@@ -145,13 +176,13 @@ public class Game {
         while (!queue.isEmpty()) {
             Field field = queue.poll();
 
-            if (field.getDomain().isEmpty()) {
+            if (field.getDomainSize() == 0) {
                 printNoOfIterationsAndProcessedArcs("AC-3", iterations, processedArcs);
                 return false; // Inconsistency, AC-3 fails
             }
 
             if (field.getDomainSize() == 1) {
-                int value = field.getDomain().get(0);
+                int value = field.getSmallestDomainValue();
                 field.setValue(value);
 
                 for (Field neighbor : field.getNeighbours()) {
@@ -185,13 +216,13 @@ public class Game {
         while (!queue.isEmpty()) {
             Field field = queue.poll();
 
-            if (field.getDomain().isEmpty()) {
+            if (field.getDomainSize() == 0) {
                 printNoOfIterationsAndProcessedArcs("AC-3 with MRV", iterations, processedArcs);
                 return false;
             }
 
             if (field.getDomainSize() == 1) {
-                int value = field.getDomain().get(0);
+                int value = field.getSmallestDomainValue();
                 field.setValue(value);
 
                 for (Field neighbor : field.getNeighbours()) {
@@ -237,46 +268,52 @@ public class Game {
 
     /**
      * Solves the Sudoku puzzle using the AC-3 algorithm with the Degree heuristic.
+     * The fields to check are kept in a worklist ordered by the number of unassigned neighbours, which is
+     * updated when a neighbour gets a value, and every field is at most once in the worklist.
      *
      * @return true if the puzzle is solvable, false otherwise.
      */
     public boolean solveAC3WithDegree() {
-        Queue<Field> queue = new LinkedList<>();
+        numberFields();
+        degrees = new int[fields.length];
+        worklist = new IndexedWorklist(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            degrees[i] = countUnassignedNeighbors(fields[i]);
+        }
 
-        for (Field[] row : sudoku.getBoard()) {
-            for (Field field : row) {
-                if (field.getValue() != 0) {
-                    for (Field neighbor : field.getNeighbours()) {
-                        if (neighbor.removeFromDomain(field.getValue())) {
-                            queue.add(neighbor);
-                        }
+        for (int i = 0; i < fields.length; i++) {
+            int value = fields[i].getValue();
+            if (value != 0) {
+                for (int neighbor : neighbours[i]) {
+                    if (removeFromDomain(neighbor, value)) {
+                        worklist.add(neighbor, degrees[neighbor]);
                     }
-                } else {
-                    queue.add(field);
                 }
+            } else {
+                worklist.add(i, degrees[i]);
             }
         }
 
-        while (!queue.isEmpty()) {
-            // Sort the queue based on the degree heuristic (number of unassigned neighbors)
-            List<Field> sortedQueue = new ArrayList<>(queue);
-            sortedQueue.sort(Comparator.comparingInt(f -> -countUnassignedNeighbors(f))); // Sort in descending order
-
-            Field field = sortedQueue.remove(0); // Get the field with the highest degree
-            queue.remove(field);
+        while (!worklist.isEmpty()) {
+            int index = worklist.poll(); // the field with the highest degree
+            Field field = fields[index];
 
-            if (field.getDomain().isEmpty()) {
+            if (field.getDomainSize() == 0) {
                 printNoOfIterationsAndProcessedArcs("AC-3 with Degree", iterations, processedArcs);
                 return false;
             }
 
             if (field.getDomainSize() == 1) {
-                int value = field.getDomain().get(0);
+                int value = field.getSmallestDomainValue();
+                boolean unassigned = field.getValue() == 0;
                 field.setValue(value);
+                if (unassigned) {
+                    lowerDegrees(index);
+                }
 
-                for (Field neighbor : field.getNeighbours()) {
-                    if (neighbor.removeFromDomain(value)) {
-                        queue.add(neighbor);
+                for (int neighbor : neighbours[index]) {
+                    if (removeFromDomain(neighbor, value)) {
+                        worklist.add(neighbor, degrees[neighbor]);
                     }
                     increaseProcessedArcs();
                 }
@@ -289,6 +326,338 @@ public class Game {
         return true;
     }
 
+    /**
+     * Removes a value from the domain of a field for solveAC3WithDegree, and lowers the degrees of
+     * the neighbours if the field gets a value because of it.
+     *
+     * @return true if the value was removed.
+     */
+    private boolean removeFromDomain(int field, int value) {
+        boolean unassigned = fields[field].getValue() == 0;
+        boolean removed = fields[field].removeFromDomain(value);
+        if (unassigned && fields[field].getValue() != 0) {
+            lowerDegrees(field);
+        }
+        return removed;
+    }
+
+    /**
+     * Lowers the degrees of the neighbours of a field that just got a value, also in the worklist.
+     */
+    private void lowerDegrees(int field) {
+        for (int neighbor : neighbours[field]) {
+            degrees[neighbor]--;
+            worklist.setPriority(neighbor, degrees[neighbor]);
+        }
+    }
+
+    /**
+     * Solves the Sudoku puzzle completely with backtracking search that maintains arc consistency (MAC).
+     * The search assigns the field with the fewest values left per conflict (dom/wdeg, see search), tries its
+     * values starting with the one that rules out the fewest values of its neighbours (least constraining value),
+     * and runs AC-3 after every assignment, together with a check for values that fit in only one field of a row,
+     * column or box. Changes are written to a trail, so taking back an assignment restores the fields without
+     * copying the board. The search restarts after a growing number of iterations, which keeps larger sudokus
+     * like 25x25 from getting stuck on an early wrong choice.
+     *
+     * @return true if the puzzle has a solution, which is then on the board, false otherwise.
+     */
+    public boolean solveMAC() {
+        boolean solved = solveMACQuietly();
+        printNoOfIterationsAndProcessedArcs("MAC", iterations, processedArcs);
+
+        return solved;
+    }
+
+    /**
+     * Solves the Sudoku puzzle like solveMAC, without printing anything, for solving many puzzles.
+     * The numbers of iterations and processed arcs can be read afterwards with getIterations and getProcessedArcs.
+     *
+     * @return true if the puzzle has a solution, which is then on the board, false otherwise.
+     */
+    public boolean solveMACQuietly() {
+        setUpSearch();
+
+        // The given values are the only values in their domains, and AC-3 starts from all of them
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].getValue() != 0) {
+                fields[i].assign(fields[i].getValue());
+                queue[queueSize++] = i;
+            }
+        }
+        for (int unit = 0; unit < units.length; unit++) {
+            markChanged(unit);
+        }
+
+        // Start again with more nodes every time, so one bad early choice can not hold up the search.
+        // The conflicts are kept, so the next search first chooses the fields that failed before.
+        boolean solved = propagate();
+        int root = trailSize;
+        for (long nodes = FIRST_RESTART; solved; nodes = nodes * 3 / 2) {
+            nodeLimit = iterations + nodes;
+            restart = false;
+            if (search(0)) {
+                break;
+            }
+            solved = restart;
+            undoTo(root);
+        }
+        if (!solved) {
+            undoTo(0);
+        }
+
+        return solved;
+    }
+
+    /**
+     * Numbers the fields of the board row by row, and gets the tables of neighbours and units for its size.
+     */
+    private void numberFields() {
+        Field[][] board = sudoku.getBoard();
+        int size = board.length;
+        fields = new Field[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                fields[i * size + j] = board[i][j];
+            }
+        }
+        Units layout = Units.get(size);
+        units = layout.getUnits();
+        fieldUnits = layout.getFieldUnits();
+        neighbours = layout.getNeighbours();
+    }
+
+    /**
+     * Makes the state used by the search.
+     */
+    private void setUpSearch() {
+        numberFields();
+        int size = sudoku.getBoard().length;
+        allValues = (size == 64) ? -1L : (1L << size) - 1;
+        queue = new int[fields.length];
+        queueHead = 0;
+        queueSize = 0;
+        changedUnits = new boolean[units.length];
+        changedUnitList = new int[units.length];
+        changedUnitCount = 0;
+        trailFields = new int[fields.length];
+        trailValues = new int[fields.length];
+        trailDomains = new long[fields.length];
+        trailSize = 0;
+        valueBuffers = new int[fields.length + 1][];
+        conflicts = new int[fields.length];
+    }
+
+    /**
+     * Assigns an unassigned field and searches further for every value. The field with the smallest number of
+     * values divided by 1 + its conflicts so far is chosen (dom/wdeg). Before the first dead end this is the field
+     * with the fewest values left (MRV), but after that a field with many conflicts can be chosen over one with
+     * fewer values.
+     *
+     * @param depth The number of assignments made by the search so far.
+     * @return true if a solution was found, false if there is none or the search has to restart.
+     */
+    private boolean search(int depth) {
+        int field = -1;
+        long fewestValues = 1;
+        long mostConflicts = 0;
+        for (int i = 0; i < fields.length; i++) {
+            int size = fields[i].getDomainSize();
+            // Smallest size / (1 + conflicts), without dividing
+            if (size > 1 && (field < 0 || size * mostConflicts < fewestValues * (1L + conflicts[i]))) {
+                field = i;
+                fewestValues = size;
+                mostConflicts = 1L + conflicts[i];
+            }
+        }
+        if (field < 0) {
+            return true; // every field has a value and AC-3 found no conflict
+        }
+        if (iterations >= nodeLimit) {
+            restart = true;
+            return false;
+        }
+        increaseIterations();
+
+        int[] values = orderValues(field, depth);
+        for (int value : values) {
+            int mark = trailSize;
+            assign(field, value);
+            if (propagate() && search(depth + 1)) {
+                return true;
+            }
+            undoTo(mark);
+            if (restart) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orders the values of a field by the number of unassigned neighbours that still have the value,
+     * so the value that leaves the most options to the neighbours is tried first.
+     *
+     * @return The values, in a buffer that is reused for the same depth.
+     */
+    private int[] orderValues(int field, int depth) {
+        int size = fields[field].getDomainSize();
+        if (valueBuffers[depth] == null || valueBuffers[depth].length != size) {
+            valueBuffers[depth] = new int[size];
+        }
+        int[] values = valueBuffers[depth];
+        long[] keys = valueKeys; // constraint count in the high bits, value in the low bits
+        int count = 0;
+        for (long bits = fields[field].getDomainBits(); bits != 0; bits &= bits - 1) {
+            int value = Long.numberOfTrailingZeros(bits) + 1;
+            int constrained = 0;
+            for (int neighbour : neighbours[field]) {
+                if (fields[neighbour].getDomainSize() > 1 && fields[neighbour].domainContains(value)) {
+                    constrained++;
+                }
+            }
+            keys[count++] = ((long) constrained << 32) | value;
+        }
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < size; i++) {
+            values[i] = (int) keys[i];
+        }
+        return values;
+    }
+
+    /**
+     * Propagates the assignments in the queue: AC-3, followed by a search for values that fit in only
+     * one field of a row, column or box, which are then assigned and propagated as well.
+     *
+     * @return false if a domain became empty or a value does not fit anywhere in a unit.
+     */
+    private boolean propagate() {
+        boolean consistent = true;
+        while (consistent && (queueHead < queueSize || changedUnitCount > 0)) {
+            consistent = propagateArcs() && assignHiddenSingles();
+        }
+        while (changedUnitCount > 0) {
+            changedUnits[changedUnitList[--changedUnitCount]] = false;
+        }
+        queueHead = 0;
+        queueSize = 0;
+        return consistent;
+    }
+
+    /**
+     * Assigns every value that fits in only one field of a changed unit to that field, and adds the field
+     * to the queue. AC-3 alone only looks at pairs of neighbours and misses these, which makes the search far larger.
+     *
+     * @return false if a value does not fit in any field of a unit.
+     */
+    private boolean assignHiddenSingles() {
+        while (changedUnitCount > 0) {
+            int[] unit = units[changedUnitList[--changedUnitCount]];
+            changedUnits[changedUnitList[changedUnitCount]] = false;
+            long once = 0; // the values that fit in at least one field
+            long twice = 0; // the values that fit in at least two fields
+            for (int field : unit) {
+                long domain = fields[field].getDomainBits();
+                twice |= once & domain;
+                once |= domain;
+            }
+            if (once != allValues) {
+                for (int field : unit) {
+                    conflicts[field]++;
+                }
+                return false;
+            }
+            for (long bits = once & ~twice; bits != 0; bits &= bits - 1) {
+                int value = Long.numberOfTrailingZeros(bits) + 1;
+                for (int field : unit) {
+                    if (fields[field].domainContains(value)) {
+                        if (fields[field].getDomainSize() > 1) {
+                            assign(field, value);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * AC-3 for the constraints between neighbours: the value of a field that has only one value left is
+     * removed from the domains of its neighbours, and neighbours that have one value left are added to the queue.
+     *
+     * @return false if a domain became empty.
+     */
+    private boolean propagateArcs() {
+        while (queueHead < queueSize) {
+            int field = queue[queueHead++];
+            int value = fields[field].getValue();
+            for (int neighbour : neighbours[field]) {
+                increaseProcessedArcs();
+                Field neighbourField = fields[neighbour];
+                if (neighbourField.domainContains(value)) {
+                    save(neighbour);
+                    neighbourField.removeFromDomain(value);
+                    int size = neighbourField.getDomainSize();
+                    if (size == 0) {
+                        conflicts[field]++;
+                        conflicts[neighbour]++;
+                        return false;
+                    }
+                    if (size == 1) {
+                        queue[queueSize++] = neighbour;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives a field a value and adds it to the queue, so the value is removed from its neighbours.
+     */
+    private void assign(int field, int value) {
+        save(field);
+        fields[field].assign(value);
+        queue[queueSize++] = field;
+    }
+
+    /**
+     * Writes the value and domain of a field to the trail before the search changes it,
+     * and marks the units of the field as changed.
+     */
+    private void save(int field) {
+        if (trailSize == trailFields.length) {
+            trailFields = Arrays.copyOf(trailFields, trailSize * 2);
+            trailValues = Arrays.copyOf(trailValues, trailSize * 2);
+            trailDomains = Arrays.copyOf(trailDomains, trailSize * 2);
+        }
+        trailFields[trailSize] = field;
+        trailValues[trailSize] = fields[field].getValue();
+        trailDomains[trailSize] = fields[field].getDomainBits();
+        trailSize++;
+        for (int unit : fieldUnits[field]) {
+            markChanged(unit);
+        }
+    }
+
+    private void markChanged(int unit) {
+        if (!changedUnits[unit]) {
+            changedUnits[unit] = true;
+            changedUnitList[changedUnitCount++] = unit;
+        }
+    }
+
+    /**
+     * Takes back all changes written to the trail after the mark, newest first.
+     */
+    private void undoTo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            fields[trailFields[trailSize]].restore(trailValues[trailSize], trailDomains[trailSize]);
+        }
+    }
+
     /**
      * Counts the number of neighboring fields with unassigned values for a given field.
      *
@@ -317,4 +686,15 @@ public class Game {
         }
     }
 
+    /**
+     * Solves the puzzle with the backtracking search (MAC) and reports whether it could be solved.
+     */
+    public void verifyMACOutput() {
+        if (solveMAC() && validSolution()) {
+            System.out.println("Sudoku is solvable.");
+        } else {
+            System.out.println("Sudoku is not solvable.");
+        }
+    }
+
 }
\ No newline at end of file
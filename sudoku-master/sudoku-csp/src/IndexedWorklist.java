@@ -0,0 +1,151 @@
+/*
+ * Artificial Intelligence: Principles & Techniques
+ * Assignment 2: Sudoku
+ * 16/11-23
+ * Amanda Enhörning, s1128126
+ * Jessica Borg, s1129470
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of the items 0 to capacity - 1, e.g. the indices of the fields of a sudoku, in which every
+ * item is at most once. The item with the highest priority comes first, and items with the same priority
+ * in the order they were added. The priority of an item in the queue can be changed.
+ * Adding, polling and changing a priority take O(log n), checking whether an item is in the queue O(1).
+ */
+public class IndexedWorklist {
+    private final int[] heap; // the items, as a binary heap with the first item at 0
+    private final int[] positions; // where every item is in the heap, or -1 if it is not in the queue
+    private final int[] priorities;
+    private final long[] order; // when every item was added, to keep items with the same priority in order
+    private int size = 0;
+    private long added = 0;
+
+    /**
+     * Constructs an empty worklist.
+     *
+     * @param capacity The number of items, which are 0 to capacity - 1.
+     */
+    IndexedWorklist(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        priorities = new int[capacity];
+        order = new long[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Adds an item, unless it is already in the queue, where it then keeps its place.
+     *
+     * @param item The item to add.
+     * @param priority The priority of the item.
+     * @return true if the item was added.
+     */
+    public boolean add(int item, int priority) {
+        if (positions[item] >= 0) {
+            return false;
+        }
+        priorities[item] = priority;
+        order[item] = added++;
+        heap[size] = item;
+        positions[item] = size;
+        size++;
+        siftUp(size - 1);
+        return true;
+    }
+
+    /**
+     * Changes the priority of an item in the queue. Does nothing if the item is not in the queue.
+     *
+     * @param item The item.
+     * @param priority The new priority of the item.
+     */
+    public void setPriority(int item, int priority) {
+        int position = positions[item];
+        if (position < 0 || priorities[item] == priority) {
+            return;
+        }
+        boolean higher = priority > priorities[item];
+        priorities[item] = priority;
+        if (higher) {
+            siftUp(position);
+        } else {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Removes the item with the highest priority, or the one added first of those.
+     *
+     * @return The removed item.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("The worklist is empty");
+        }
+        int first = heap[0];
+        positions[first] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    public boolean contains(int item) {
+        return positions[item] >= 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if item a comes before item b.
+     */
+    private boolean before(int a, int b) {
+        return priorities[a] > priorities[b] || (priorities[a] == priorities[b] && order[a] < order[b]);
+    }
+
+    private void siftUp(int position) {
+        int item = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!before(item, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        int item = heap[position];
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], item)) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
@@ -9,6 +9,8 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -26,79 +28,149 @@ public class Sudoku {
         this.board = readsudoku(filename);
     }
 
+    /**
+     * Constructs a Sudoku object from a grid, e.g. one made by parseSudoku.
+     *
+     * @param board The 2D array representing the Sudoku puzzle grid.
+     */
+    Sudoku(Field[][] board) {
+        this.board = board;
+    }
+
     
     /**
      * Reads a Sudoku puzzle from the specified file and initializes the Sudoku grid.
+     * See parseSudoku for the format.
      *
      * @param filename The name of the file containing the Sudoku puzzle.
      * @return A 2D array representing the Sudoku puzzle grid.
      */
     public static Field[][] readsudoku(String filename) {
         assert filename != null && !filename.isEmpty() : "Invalid filename";
-        String line = "";
-        Field[][] grid = new Field[9][9];
-
-        // Initialize all fields first
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++) {
-                grid[i][j] = new Field();
-            }
-        }
+        List<String> lines = new ArrayList<>();
 
         try {
             FileInputStream inputStream = new FileInputStream(filename);
             Scanner scanner = new Scanner(inputStream);
-            for (int i = 0; i < 9; i++) {
-                if (scanner.hasNext()) {
-                    line = scanner.nextLine();
-                    for (int j = 0; j < 9; j++) {
-                        int numValue = Character.getNumericValue(line.charAt(j));
-                        if (numValue != 0) {
-                            grid[i][j].setValue(numValue);
-                        }
-                    }
-                }
+            while (scanner.hasNextLine()) {
+                lines.add(scanner.nextLine());
             }
             scanner.close();
         } catch (FileNotFoundException e) {
             System.out.println("Error opening file: " + filename);
         }
 
+        return parseSudoku(lines);
+    }
+
+    /**
+     * Makes the Sudoku grid from the lines of a puzzle. A sudoku with boxes of n x n fields has n² rows,
+     * columns and values, and the size is found from the lines:
+     * - one line per row, with one character per field: 1 to 9, then A for 10 up to Z for 35;
+     * - one line per row, with the values separated by spaces, for sudokus with more than 35 values;
+     * - all fields on a single line, row by row, like in collections of puzzles.
+     * An unknown field is 0 or a dot. Empty lines are skipped, and no lines at all give an empty 9x9 sudoku.
+     *
+     * @param lines The lines of the puzzle.
+     * @return A 2D array representing the Sudoku puzzle grid.
+     * @throws IllegalArgumentException if the lines are not a sudoku of a supported size.
+     */
+    public static Field[][] parseSudoku(List<String> lines) {
+        List<String[]> rows = new ArrayList<>();
+        for (String line : lines) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                rows.add(line.contains(" ") || line.contains("\t") ? line.split("\\s+") : line.split(""));
+            }
+        }
+
+        // The fields row by row, and the number of rows
+        List<String> cells = new ArrayList<>();
+        int size = 9;
+        if (rows.size() == 1) {
+            cells.addAll(Arrays.asList(rows.get(0)));
+            size = (int) Math.round(Math.sqrt(cells.size()));
+        } else if (rows.size() > 1) {
+            size = rows.size();
+            for (String[] row : rows) {
+                if (row.length != size) {
+                    throw new IllegalArgumentException("A sudoku with " + size + " rows needs " + size + " fields per row");
+                }
+                cells.addAll(Arrays.asList(row));
+            }
+        }
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        if (boxSize * boxSize != size || size > Field.MAX_VALUES || (!cells.isEmpty() && cells.size() != size * size)) {
+            throw new IllegalArgumentException("A sudoku needs n² rows of n² fields, with n² at most " + Field.MAX_VALUES);
+        }
+
+        Field[][] grid = new Field[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int value = cells.isEmpty() ? 0 : parseValue(cells.get(i * size + j), size);
+                grid[i][j] = new Field(value, size);
+            }
+        }
+
         // Now, add neighbors to the initialized fields
         addNeighbours(grid);
 
         return grid;
     }
 
+    /**
+     * @return The value of a field in a puzzle, or 0 if it is unknown.
+     */
+    private static int parseValue(String token, int size) {
+        int value;
+        if (token.equals(".")) {
+            value = 0;
+        } else if (token.length() == 1) {
+            value = Character.digit(token.charAt(0), Character.MAX_RADIX);
+        } else {
+            try {
+                value = Integer.parseInt(token);
+            } catch (NumberFormatException e) {
+                value = -1;
+            }
+        }
+        if (value < 0 || value > size) {
+            throw new IllegalArgumentException("Invalid value \"" + token + "\" in a sudoku of size " + size);
+        }
+        return value;
+    }
+
     /**
      * Initializes the neighbors for each field in the Sudoku grid.
      *
      * @param grid The 2D array representing the Sudoku puzzle grid.
      */
     private static void addNeighbours(Field[][] grid) {
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++) {
+        int size = grid.length;
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
                 grid[i][j].setNeighbours(new ArrayList<>());
 
                 // Add row neighbors
-                for (int k = 0; k < 9; k++) {
+                for (int k = 0; k < size; k++) {
                     if (k != j) {
                         grid[i][j].getNeighbours().add(grid[i][k]);
                     }
                 }
 
                 // Add column neighbors
-                for (int k = 0; k < 9; k++) {
+                for (int k = 0; k < size; k++) {
                     if (k != i) {
                         grid[i][j].getNeighbours().add(grid[k][j]);
                     }
                 }
 
-                // Add 3x3 subgrid neighbors
-                int boxRow = i / 3 * 3;
-                int boxCol = j / 3 * 3;
-                for (int x = boxRow; x < boxRow + 3; x++) {
-                    for (int y = boxCol; y < boxCol + 3; y++) {
+                // Add box neighbors
+                int boxRow = i / boxSize * boxSize;
+                int boxCol = j / boxSize * boxSize;
+                for (int x = boxRow; x < boxRow + boxSize; x++) {
+                    for (int y = boxCol; y < boxCol + boxSize; y++) {
                         if (x != i && y != j) {
                             grid[i][j].getNeighbours().add(grid[x][y]);
                         }
@@ -110,18 +182,37 @@ public class Sudoku {
 
     /**
      * Generates a string representation of the Sudoku puzzle suitable for writing to a file.
+     * It can be read again by readsudoku: one character per field for up to 35 values, otherwise
+     * values separated by spaces.
      *
      * @return A string representing the Sudoku puzzle in a file-friendly format.
      */
     public String toFileString() {
-        String output = "";
+        StringBuilder output = new StringBuilder();
+        boolean characters = board.length < Character.MAX_RADIX;
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[0].length; j++) {
-                output += board[i][j].getValue();
+                int value = board[i][j].getValue();
+                if (characters) {
+                    output.append(Character.toUpperCase(Character.forDigit(value, Character.MAX_RADIX)));
+                } else {
+                    output.append(j == 0 ? "" : " ").append(value);
+                }
             }
-            output += "\n";
+            output.append("\n");
         }
-        return output;
+        return output.toString();
+    }
+
+    /**
+     * Generates a string representation of the Sudoku puzzle on one line, like in collections of puzzles.
+     * It can be read again by parseSudoku.
+     *
+     * @return All fields row by row.
+     */
+    public String toLineString() {
+        String fileString = toFileString();
+        return (board.length < Character.MAX_RADIX) ? fileString.replace("\n", "") : fileString.trim().replace("\n", " ");
     }
 
     /**
@@ -133,6 +224,15 @@ public class Sudoku {
         return board;
     }
 
+    /**
+     * Gets the width and height of the boxes, e.g. 3 for a 9x9 sudoku.
+     *
+     * @return The size of a box.
+     */
+    public int getBoxSize() {
+        return (int) Math.round(Math.sqrt(board.length));
+    }
+
     /**
      * Returns a string representation of the Sudoku puzzle suitable for printing.
      *
@@ -140,22 +240,37 @@ public class Sudoku {
      */
     @Override
     public String toString() {
-        String output = "╔═══════╦═══════╦═══════╗\n";
-        for (int i = 0; i < 9; i++) {
-            if (i == 3 || i == 6) {
-                output += "╠═══════╬═══════╬═══════╣\n";
+        int size = board.length;
+        int boxSize = getBoxSize();
+        int width = String.valueOf(size).length(); // the width of a value
+        String box = repeat("═", boxSize * (width + 1) + 1);
+        String separator = repeat(box + "╬", boxSize - 1) + box;
+
+        StringBuilder output = new StringBuilder("╔" + separator.replace('╬', '╦') + "╗\n");
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && i % boxSize == 0) {
+                output.append("╠").append(separator).append("╣\n");
             }
-            output += "║ ";
-            for (int j = 0; j < 9; j++) {
-                if (j == 3 || j == 6) {
-                    output += "║ ";
+            output.append("║ ");
+            for (int j = 0; j < size; j++) {
+                if (j > 0 && j % boxSize == 0) {
+                    output.append("║ ");
                 }
-                output += board[i][j] + " ";
+                String field = board[i][j].toString();
+                output.append(repeat(" ", width - field.length())).append(field).append(" ");
             }
 
-            output += "║\n";
+            output.append("║\n");
+        }
+        output.append("╚").append(separator.replace('╬', '╩')).append("╝\n");
+        return output.toString();
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            output.append(text);
         }
-        output += "╚═══════╩═══════╩═══════╝\n";
-        return output;
+        return output.toString();
     }
 }
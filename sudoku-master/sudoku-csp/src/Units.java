@@ -0,0 +1,94 @@
+/*
+ * Artificial Intelligence: Principles & Techniques
+ * Assignment 2: Sudoku
+ * 16/11-23
+ * Amanda Enhörning, s1128126
+ * Jessica Borg, s1129470
+ */
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The rows, columns and boxes of a sudoku of a given size, with every field known by its index i * size + j.
+ * They only depend on the size, so they are made once per size and shared by all games, also between threads.
+ * The arrays that are handed out must not be changed.
+ */
+public class Units {
+    private static final Map<Integer, Units> cache = new ConcurrentHashMap<>();
+
+    private final int[][] units; // the fields of every row, column and box
+    private final int[][] fieldUnits; // the row, column and box of every field
+    private final int[][] neighbours; // the other fields in the units of every field
+
+    /**
+     * @param size The number of rows of the sudoku, e.g. 9.
+     * @return The units of a sudoku of this size, made the first time they are asked for.
+     */
+    public static Units get(int size) {
+        Units units = cache.get(size);
+        if (units == null) {
+            units = cache.computeIfAbsent(size, Units::new);
+        }
+        return units;
+    }
+
+    private Units(int size) {
+        int boxSize = (int) Math.round(Math.sqrt(size));
+        int fieldCount = size * size;
+        units = new int[3 * size][size];
+        fieldUnits = new int[fieldCount][];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int index = i * size + j;
+                int box = i / boxSize * boxSize + j / boxSize;
+                units[i][j] = index;
+                units[size + j][i] = index;
+                units[2 * size + box][i % boxSize * boxSize + j % boxSize] = index;
+                fieldUnits[index] = new int[] {i, size + j, 2 * size + box};
+            }
+        }
+
+        // The neighbours of a field are the other fields of its units, like in Sudoku.addNeighbours
+        neighbours = new int[fieldCount][];
+        boolean[] isNeighbour = new boolean[fieldCount];
+        int[] found = new int[3 * size];
+        for (int i = 0; i < fieldCount; i++) {
+            int count = 0;
+            for (int unit : fieldUnits[i]) {
+                for (int field : units[unit]) {
+                    if (field != i && !isNeighbour[field]) {
+                        isNeighbour[field] = true;
+                        found[count++] = field;
+                    }
+                }
+            }
+            neighbours[i] = Arrays.copyOf(found, count);
+            for (int n = 0; n < count; n++) {
+                isNeighbour[found[n]] = false;
+            }
+        }
+    }
+
+    /**
+     * @return The fields of all units: the rows first, then the columns, then the boxes.
+     */
+    public int[][] getUnits() {
+        return units;
+    }
+
+    /**
+     * @return For every field, the indices of its row, column and box in getUnits.
+     */
+    public int[][] getFieldUnits() {
+        return fieldUnits;
+    }
+
+    /**
+     * @return For every field, the other fields in its row, column and box.
+     */
+    public int[][] getNeighbours() {
+        return neighbours;
+    }
+}